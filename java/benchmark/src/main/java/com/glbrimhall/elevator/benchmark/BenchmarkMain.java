@@ -0,0 +1,41 @@
+/*
+ * Copyright (C) 2017 glbrimhall.com
+ *
+ * This file is part of an Elevator Simulator program written in java.
+ *
+ * Elevator Simulator program is free software: you can redistribute it and/or 
+ * modify it under the terms of the GNU General Public License as published
+ * by the Free Software Foundation, version 3 of the License.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.glbrimhall.elevator.benchmark;
+
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * BenchmarkMain runs the JMH benchmarks with the usual JMH command line
+ * options, always adding the gc profiler so every result also reports the
+ * allocation rate, in bytes per operation.
+ */
+public class BenchmarkMain {
+
+    public static void main( String[] args ) throws Exception {
+        Options options = new OptionsBuilder()
+                .parent( new CommandLineOptions( args ) )
+                .addProfiler( GCProfiler.class )
+                .build();
+
+        new Runner( options ).run();
+    }
+}
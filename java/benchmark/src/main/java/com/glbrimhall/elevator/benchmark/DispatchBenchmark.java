@@ -0,0 +1,117 @@
+/*
+ * Copyright (C) 2017 glbrimhall.com
+ *
+ * This file is part of an Elevator Simulator program written in java.
+ *
+ * Elevator Simulator program is free software: you can redistribute it and/or 
+ * modify it under the terms of the GNU General Public License as published
+ * by the Free Software Foundation, version 3 of the License.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.glbrimhall.elevator.benchmark;
+
+import com.glbrimhall.elevator.CommandBatch;
+import com.glbrimhall.elevator.ElevatorSystem;
+import com.glbrimhall.elevator.Movement;
+import com.glbrimhall.elevator.VirtualClock;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * DispatchBenchmark measures {@link ElevatorSystem#floorRequest(int, Movement)}
+ * across building sizes, and a burst of them one at a time or as one 
+ * {@link CommandBatch}. The elevators run on a {@link VirtualClock} that is
+ * never advanced, so only the dispatch and queueing is measured, and the
+ * system is rebuilt for every iteration so the queues do not saturate.
+ */
+@State( Scope.Thread )
+@BenchmarkMode( Mode.AverageTime )
+@OutputTimeUnit( TimeUnit.MICROSECONDS )
+@Warmup( iterations = 3, time = 1 )
+@Measurement( iterations = 5, time = 1 )
+@Fork( 1 )
+public class DispatchBenchmark {
+
+    @Param( { "1", "100", "1000", "10000" } )
+    public int              numElevators;
+
+    @Param( { "10", "100", "500" } )
+    public int              numFloors;
+
+    @Param( { "nearest" } )
+    public String           dispatch;
+
+    protected static final int  REQUESTS = 1024;
+    protected static final int  BURST = 64;
+
+    protected ElevatorSystem    system;
+    protected int[]             floors;
+    protected Movement[]        directions;
+    protected int               next;
+    protected CommandBatch      burst;
+
+    @Setup( Level.Iteration )
+    public void setup() {
+        Random random = new Random( 42 );
+
+        system = new ElevatorSystem();
+        system.setClock( new VirtualClock() );
+        system.setDispatchStrategy( ElevatorSystem.newDispatchStrategy( dispatch ) );
+        system.initialize( numElevators, numFloors );
+
+        floors = new int[ REQUESTS ];
+        directions = new Movement[ REQUESTS ];
+
+        for ( int i = 0; i < REQUESTS; ++i ) {
+            floors[ i ] = random.nextInt( numFloors + 1 );
+            directions[ i ] = random.nextBoolean() ? Movement.UP : Movement.DOWN;
+        }
+        next = 0;
+
+        burst = new CommandBatch( BURST );
+
+        for ( int i = 0; i < BURST; ++i ) {
+            burst.hallCall( floors[ i ], directions[ i ] );
+        }
+    }
+
+    @Benchmark
+    public int floorRequest() {
+        next = ( next + 1 ) & ( REQUESTS - 1 );
+        return system.floorRequest( floors[ next ], directions[ next ] );
+    }
+
+    @Benchmark
+    public int burstOneAtATime() {
+        int last = 0;
+
+        for ( int i = 0; i < BURST; ++i ) {
+            last = system.floorRequest( floors[ i ], directions[ i ] );
+        }
+        return last;
+    }
+
+    @Benchmark
+    public int burstBatched() {
+        return system.submit( burst );
+    }
+}
@@ -0,0 +1,113 @@
+/*
+ * Copyright (C) 2017 glbrimhall.com
+ *
+ * This file is part of an Elevator Simulator program written in java.
+ *
+ * Elevator Simulator program is free software: you can redistribute it and/or 
+ * modify it under the terms of the GNU General Public License as published
+ * by the Free Software Foundation, version 3 of the License.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.glbrimhall.elevator.benchmark;
+
+import com.glbrimhall.elevator.BitSetElevatorQueue;
+import com.glbrimhall.elevator.ElevatorQueue;
+import com.glbrimhall.elevator.FloorRequest;
+import com.glbrimhall.elevator.FloorRequestTable;
+import com.glbrimhall.elevator.Movement;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * ElevatorQueueBenchmark measures {@link ElevatorQueue#addFloor(int, Movement)},
+ * {@link ElevatorQueue#moveFloor()} and {@link ElevatorQueue#distanceToFloor(FloorRequest)}
+ * for both queue types, over a fixed seeded sequence of floor requests.
+ */
+@State( Scope.Thread )
+@BenchmarkMode( Mode.Throughput )
+@OutputTimeUnit( TimeUnit.MICROSECONDS )
+@Warmup( iterations = 3, time = 1 )
+@Measurement( iterations = 5, time = 1 )
+@Fork( 1 )
+public class ElevatorQueueBenchmark {
+
+    @Param( { "treeset", "bitset" } )
+    public String           queueType;
+
+    @Param( { "10", "100", "500" } )
+    public int              numFloors;
+
+    protected static final int  REQUESTS = 1024;
+
+    protected ElevatorQueue     queue;
+    protected int[]             floors;
+    protected Movement[]        directions;
+    protected FloorRequest[]    requests;
+    protected int               next;
+
+    @Setup
+    public void setup() {
+        FloorRequestTable   table = new FloorRequestTable( numFloors );
+        Random              random = new Random( 42 );
+
+        queue = queueType.equals( "bitset" ) ? new BitSetElevatorQueue( table )
+                                             : new ElevatorQueue( table );
+        floors = new int[ REQUESTS ];
+        directions = new Movement[ REQUESTS ];
+        requests = new FloorRequest[ REQUESTS ];
+
+        for ( int i = 0; i < REQUESTS; ++i ) {
+            floors[ i ] = random.nextInt( numFloors + 1 );
+            directions[ i ] = random.nextBoolean() ? Movement.UP : Movement.DOWN;
+            requests[ i ] = table.get( floors[ i ], directions[ i ] );
+        }
+
+        // Half full, so distanceToFloor takes it's busy path.
+        for ( int i = 0; i < numFloors; ++i ) {
+            queue.addFloor( floors[ i ], directions[ i ] );
+        }
+        next = 0;
+    }
+
+    protected int nextRequest() {
+        next = ( next + 1 ) & ( REQUESTS - 1 );
+        return next;
+    }
+
+    @Benchmark
+    public boolean addFloor() {
+        int i = nextRequest();
+        return queue.addFloor( floors[ i ], directions[ i ] );
+    }
+
+    @Benchmark
+    public int addAndMoveFloor() {
+        int i = nextRequest();
+        queue.addFloor( floors[ i ], directions[ i ] );
+        queue.moveFloor();
+        return queue.getServicing().floor;
+    }
+
+    @Benchmark
+    public int distanceToFloor() {
+        return queue.distanceToFloor( requests[ nextRequest() ] );
+    }
+}
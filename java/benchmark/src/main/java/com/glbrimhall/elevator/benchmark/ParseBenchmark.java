@@ -0,0 +1,73 @@
+/*
+ * Copyright (C) 2017 glbrimhall.com
+ *
+ * This file is part of an Elevator Simulator program written in java.
+ *
+ * Elevator Simulator program is free software: you can redistribute it and/or 
+ * modify it under the terms of the GNU General Public License as published
+ * by the Free Software Foundation, version 3 of the License.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.glbrimhall.elevator.benchmark;
+
+import com.glbrimhall.elevator.ElevatorSystem;
+import com.glbrimhall.elevator.ParseList;
+import com.glbrimhall.elevator.VirtualClock;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * ParseBenchmark measures {@link ParseList#Parse(String)} throughput for the 
+ * elevator button and floor request commands, the bulk of any traffic,
+ * with both the regex parsers and the {@link com.glbrimhall.elevator.CommandScanner}.
+ */
+@State( Scope.Thread )
+@BenchmarkMode( Mode.Throughput )
+@OutputTimeUnit( TimeUnit.MICROSECONDS )
+@Warmup( iterations = 3, time = 1 )
+@Measurement( iterations = 5, time = 1 )
+@Fork( 1 )
+public class ParseBenchmark {
+
+    @Param( { "regex", "scan" } )
+    public String           mode;
+
+    protected ParseList     parser;
+
+    @Setup
+    public void setup() {
+        ElevatorSystem system = new ElevatorSystem();
+
+        system.setClock( new VirtualClock() );
+        system.initialize( 4, 50 );
+        parser = system.getParser();
+        parser.setScanning( mode.equals( "scan" ) );
+    }
+
+    @Benchmark
+    public String elevatorButtons() {
+        return parser.Parse( "e2f1,4-6,12" );
+    }
+
+    @Benchmark
+    public String floorRequest() {
+        return parser.Parse( "f3u" );
+    }
+}
@@ -0,0 +1,284 @@
+/*
+ * Copyright (C) 2017 glbrimhall.com
+ *
+ * This file is part of an Elevator Simulator program written in java.
+ *
+ * Elevator Simulator program is free software: you can redistribute it and/or 
+ * modify it under the terms of the GNU General Public License as published
+ * by the Free Software Foundation, version 3 of the License.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.glbrimhall.elevator;
+
+import java.util.BitSet;
+
+/**
+ * BitSetElevatorQueue is an {@link ElevatorQueue} holding the requested floors
+ * as bits instead of a TreeSet of {@link FloorRequest}. Each floor and 
+ * direction maps to one bit, laid out in the same order as 
+ * {@link FloorRequest#compareTo(FloorRequest)}: DOWN requests from the top 
+ * floor down to floor 1, followed by UP requests from floor 0 to the top floor.
+ * Adding and checking a floor is O(1), finding the next, highest and lowest
+ * floor is a scan over the words of the BitSet, and no objects are allocated
+ * as buttons are pressed.
+ * It only holds floors 0 through maxFloors, which is fixed when it is created.
+ */
+public class BitSetElevatorQueue extends ElevatorQueue {
+    protected BitSet    requestedBits = null;
+    protected int       maxFloors;
+    protected int       size;
+
+    /** 
+     * @param maxFloors the top floor the queue can hold
+     */
+    public BitSetElevatorQueue( int maxFloors ) 
+    {
+        this( new FloorRequestTable( maxFloors ) );
+    }
+
+    /** 
+     * @param floorRequests the building's shared {@link FloorRequestTable}, 
+     *                      the queue holds the same floors as the table.
+     */
+    public BitSetElevatorQueue( FloorRequestTable floorRequests ) 
+    {
+        super( floorRequests );
+        this.maxFloors = floorRequests.getMaxFloors();
+        this.requestedBits = new BitSet( 2 * this.maxFloors + 1 );
+    }
+
+    /** 
+     * Maps a floor and direction to it's bit, floor 0 is always UP.
+     */
+    protected int toBit( int floor, Movement direction )
+    {
+        if ( direction == Movement.DOWN && floor != 0 )
+            { return maxFloors - floor; }
+
+        return maxFloors + floor;
+    }
+
+    /** 
+     * Maps a bit back to it's floor.
+     */
+    protected int bitFloor( int bit )
+    {
+        return Math.abs( bit - maxFloors );
+    }
+
+    /** 
+     * Maps a bit back to it's direction.
+     */
+    protected Movement bitDirection( int bit )
+    {
+        return bit < maxFloors ? Movement.DOWN : Movement.UP;
+    }
+
+    @Override
+    public synchronized boolean isEmpty() { return size == 0; }
+
+    @Override
+    public synchronized int size() { return size; }
+
+    @Override
+    public synchronized int getHighestFloor()
+    {
+        if ( requestedBits.isEmpty() )
+            { return servicing.floor; }
+
+        return Math.max( bitFloor( requestedBits.nextSetBit( 0 ) ), 
+                         bitFloor( requestedBits.length() - 1 ) );
+    }
+
+    @Override
+    public synchronized int getLowestFloor()
+    {
+        if ( requestedBits.isEmpty() )
+            { return servicing.floor; }
+
+        int lowest_down = requestedBits.previousSetBit( maxFloors - 1 );
+        int lowest_up = requestedBits.nextSetBit( maxFloors );
+
+        // Note mathematically both cannot be -1 if requestedBits is not empty.
+        if ( lowest_down == -1 ) { return bitFloor( lowest_up ); }
+        if ( lowest_up == -1 ) { return bitFloor( lowest_down ); }
+
+        return Math.min( bitFloor( lowest_down ), bitFloor( lowest_up ) );
+    }
+
+    @Override
+    public boolean addFloor( FloorRequest newFloor )
+    {
+        return addFloor( newFloor.floor, newFloor.direction );
+    }
+
+    /** 
+     * Adds a floor and direction to the ElevatorQueue
+     * 
+     * @return boolean indicating whether the floor was added, false if it 
+     *         is outside of floors 0 through maxFloors or already queued.
+     */
+    @Override
+    public synchronized boolean addFloor( int floor, Movement direction )
+    {
+        if ( floor < 0 || floor > maxFloors )
+            { return false; }
+
+        boolean waiting = requestedBits.isEmpty();
+        int     bit = toBit( floor, direction );
+
+        if ( requestedBits.get( bit ) )
+            { return false; }
+
+        requestedBits.set( bit );
+        ++size;
+
+        if ( recorder != null ) {
+            recorder.record( FlightRecorder.ADD_FLOOR, elevatorNumber, floorRequests.get( floor, direction ), 0 );
+        }
+
+        if ( journal != null ) {
+            journal.addFloor( elevatorNumber, floorRequests.get( floor, direction ) );
+        }
+
+        publish();
+
+        if ( waiting ) {
+            wakeUp();
+        }
+        return true;
+    }
+
+    /** 
+     * Adds a group of FloorRequests under one lock, skipping the floors 
+     * outside of 0 through maxFloors or already queued.
+     * 
+     * @return the number of requests added
+     */
+    @Override
+    public synchronized int addFloors( FloorRequest[] requests, int from, int to )
+    {
+        boolean waiting = requestedBits.isEmpty();
+        int     added = 0;
+
+        for ( int i = from; i < to; ++i ) {
+            FloorRequest request = requests[ i ];
+
+            if ( request.floor < 0 || request.floor > maxFloors )
+                { continue; }
+
+            int bit = toBit( request.floor, request.direction );
+
+            if ( requestedBits.get( bit ) )
+                { continue; }
+
+            requestedBits.set( bit );
+            ++size;
+            ++added;
+
+            if ( recorder != null ) {
+                recorder.record( FlightRecorder.ADD_FLOOR, elevatorNumber, request, 0 );
+            }
+
+            if ( journal != null ) {
+                journal.addFloor( elevatorNumber, request );
+            }
+        }
+
+        if ( added == 0 )
+            { return 0; }
+
+        publish();
+
+        if ( waiting ) {
+            wakeUp();
+        }
+        return added;
+    }
+
+    @Override
+    public synchronized boolean containsFloor( FloorRequest newFloor )
+    {
+        if ( newFloor.floor < 0 || newFloor.floor > maxFloors )
+            { return false; }
+
+        return requestedBits.get( toBit( newFloor.floor, newFloor.direction ) );
+    }
+
+    /** 
+     * Returns the next stop, the first bit at or after the one being 
+     * serviced, wrapping back to the beginning once the top is reached.
+     */
+    @Override
+    protected FloorRequest nextStop()
+    {
+        if ( requestedBits.isEmpty() )
+            { return null; }
+
+        int next = requestedBits.nextSetBit( toBit( servicing.floor, servicing.direction ) );
+
+        if ( next == -1 )
+            { next = requestedBits.nextSetBit( 0 ); }
+
+        return floorRequests.get( bitFloor( next ), bitDirection( next ) );
+    }
+
+    @Override
+    protected void removeStop( FloorRequest stop )
+    {
+        requestedBits.clear( toBit( stop.floor, stop.direction ) );
+        --size;
+    }
+
+    @Override
+    public synchronized FloorRequest[] toArray()
+    {
+        FloorRequest[]  requests = new FloorRequest[ size ];
+        int             i = 0;
+
+        for ( int bit = requestedBits.nextSetBit( 0 ); bit >= 0; 
+              bit = requestedBits.nextSetBit( bit + 1 ) ) {
+            requests[ i++ ] = floorRequests.get( bitFloor( bit ), bitDirection( bit ) );
+        }
+        return requests;
+    }
+
+    @Override
+    public synchronized void report( StringBuilder queue ) {
+
+        if ( requestedBits.isEmpty() ) {
+            queue.append( "[ ]" );
+            return;
+        }
+
+        Movement        last = null;
+
+        queue.append( "[" );
+
+        for ( int bit = requestedBits.nextSetBit( 0 ); bit >= 0; 
+              bit = requestedBits.nextSetBit( bit + 1 ) ) {
+            Movement direction = bitDirection( bit );
+
+            if ( last != direction ) {
+                queue.append(" ");
+                queue.append( direction.toString() );
+                queue.append(":");
+                last = direction;
+            }
+            else {
+                queue.append( "," );
+            }
+
+            queue.append( " " );
+            queue.append( bitFloor( bit ) );
+        }
+        queue.append( " ]" );
+    }
+}
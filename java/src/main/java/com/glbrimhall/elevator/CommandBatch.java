@@ -0,0 +1,114 @@
+/*
+ * Copyright (C) 2017 glbrimhall.com
+ *
+ * This file is part of an Elevator Simulator program written in java.
+ *
+ * Elevator Simulator program is free software: you can redistribute it and/or 
+ * modify it under the terms of the GNU General Public License as published
+ * by the Free Software Foundation, version 3 of the License.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.glbrimhall.elevator;
+
+import java.util.Arrays;
+
+/**
+ * CommandBatch collects hall, car and destination calls so a burst of them
+ * can be handed to {@link ElevatorSystem#submit(CommandBatch)} at once. The
+ * calls are held in primitive arrays, and a batch can be cleared and reused.
+ */
+public class CommandBatch {
+    public static final byte    HALL_CALL = 0;
+    public static final byte    CAR_CALL = 1;
+    public static final byte    DESTINATION_CALL = 2;
+
+    protected byte[]            types = null;
+    protected int[]             first = null;
+    protected int[]             second = null;
+    protected int               size;
+
+    public CommandBatch() {
+        this( 64 );
+    }
+
+    /** 
+     * @param capacity the number of calls to make room for, it grows as needed
+     */
+    public CommandBatch( int capacity ) {
+        capacity = Math.max( 1, capacity );
+        types = new byte[ capacity ];
+        first = new int[ capacity ];
+        second = new int[ capacity ];
+    }
+
+    /** 
+     * Adds a call from a floor, same as {@link ElevatorSystem#floorRequest(int, Movement)}
+     */
+    public void hallCall( int floor, Movement direction ) {
+        add( HALL_CALL, floor, direction.ordinal() );
+    }
+
+    /** 
+     * Adds a floor button pressed inside an elevator, same as 
+     * {@link Elevator#buttonPressed(int)}
+     * 
+     * @param elevator the zero based elevator number
+     * @param floor the requested floor
+     */
+    public void carCall( int elevator, int floor ) {
+        add( CAR_CALL, elevator, floor );
+    }
+
+    /** 
+     * Adds a call from a floor to a destination floor, same as 
+     * {@link ElevatorSystem#destinationRequest(int, int)}
+     */
+    public void destinationCall( int floor, int destination ) {
+        add( DESTINATION_CALL, floor, destination );
+    }
+
+    /** 
+     * Returns the number of calls in the batch.
+     */
+    public int size() { return size; }
+
+    /** 
+     * Empties the batch, keeping it's arrays.
+     */
+    public void clear() { size = 0; }
+
+    /** 
+     * Returns HALL_CALL, CAR_CALL or DESTINATION_CALL of a call.
+     */
+    public byte getType( int index ) { return types[ index ]; }
+
+    /** 
+     * Returns the floor of a hall or destination call, or the elevator of a car call.
+     */
+    public int getFirst( int index ) { return first[ index ]; }
+
+    /** 
+     * Returns the direction ordinal of a hall call, the floor of a car call,
+     * or the destination of a destination call.
+     */
+    public int getSecond( int index ) { return second[ index ]; }
+
+    protected void add( byte type, int firstValue, int secondValue ) {
+        if ( size == types.length ) {
+            types = Arrays.copyOf( types, 2 * size );
+            first = Arrays.copyOf( first, 2 * size );
+            second = Arrays.copyOf( second, 2 * size );
+        }
+        types[ size ] = type;
+        first[ size ] = firstValue;
+        second[ size ] = secondValue;
+        ++size;
+    }
+}
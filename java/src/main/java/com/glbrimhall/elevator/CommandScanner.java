@@ -0,0 +1,262 @@
+/*
+ * Copyright (C) 2017 glbrimhall.com
+ *
+ * This file is part of an Elevator Simulator program written in java.
+ *
+ * Elevator Simulator program is free software: you can redistribute it and/or 
+ * modify it under the terms of the GNU General Public License as published
+ * by the Free Software Foundation, version 3 of the License.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.glbrimhall.elevator;
+
+/**
+ * CommandScanner parses the high volume commands, "e[elevatorNum]f[floorButtonList]",
+ * "f[floor][u|d|t[floor]]" and "n[numElevator]f[numFloors]", in a single 
+ * pass over the characters, without a Matcher or any substrings. It calls
+ * the ElevatorSystem the same as {@link ParseElevator}, {@link ParseFloor}
+ * and {@link ParseNumberElevatorFloors}, and hands anything it does not 
+ * recognize to them from the point it stopped, so their replies and 
+ * errors are unchanged. It keeps no state while scanning, so it can be 
+ * called from several threads.
+ */
+public class CommandScanner {
+    protected ElevatorSystem    elevatorSystem = null;
+    protected ParseCommand      elevatorCommand = null;
+    protected ParseCommand      floorCommand = null;
+    protected ParseCommand      numberCommand = null;
+    protected static final int  MAX_DIGITS = 9;
+
+    /** 
+     * @param system the ElevatorSystem the commands run on
+     * @param elevatorCommand parses the "e" commands not scanned
+     * @param floorCommand parses the "f" commands not scanned
+     * @param numberCommand parses the "n" commands not scanned
+     */
+    public CommandScanner( ElevatorSystem system, ParseCommand elevatorCommand,
+                           ParseCommand floorCommand, ParseCommand numberCommand ) {
+        this.elevatorSystem = system;
+        this.elevatorCommand = elevatorCommand;
+        this.floorCommand = floorCommand;
+        this.numberCommand = numberCommand;
+    }
+
+    /** 
+     * Scans a command.
+     * 
+     * @param cmd a command that is not empty
+     * @return the reply, or null if the command is not one that is scanned
+     */
+    public String scan( String cmd ) {
+        switch ( cmd.charAt( 0 ) ) {
+            case 'e': return scanElevator( cmd );
+            case 'f': return scanFloor( cmd );
+            case 'n': return scanNumberElevatorFloors( cmd );
+            default:  return null;
+        }
+    }
+
+    /** 
+     * Scans one or more "e[elevatorNum]f[floorButtonList]" commands, where the
+     * list is floors or ranges of floors separated by commas.
+     */
+    protected String scanElevator( String cmd ) {
+        int length = cmd.length();
+        int pos = 0;
+
+        while ( pos < length ) {
+            int numberEnd = digitsEnd( cmd, pos + 1 );
+
+            if ( cmd.charAt( pos ) != 'e' || numberEnd < 0 || numberEnd >= length ||
+                 cmd.charAt( numberEnd ) != 'f' ) {
+                return rest( elevatorCommand, cmd, pos );
+            }
+
+            int listStart = numberEnd + 1;
+            int listEnd = listEnd( cmd, listStart );
+
+            if ( listEnd < 0 ) {
+                return rest( elevatorCommand, cmd, pos );
+            }
+
+            Elevator        elevator = elevatorSystem.getElevator( toInt( cmd, pos + 1, numberEnd ) - 1 );
+            CommandBatch    batch = new CommandBatch( 4 );
+
+            for ( int item = listStart; item < listEnd; ) {
+                int startEnd = digitsEnd( cmd, item );
+                int startFloor = toInt( cmd, item, startEnd );
+                int endFloor = startFloor;
+
+                item = startEnd;
+
+                if ( item < listEnd && cmd.charAt( item ) == '-' ) {
+                    int endEnd = digitsEnd( cmd, item + 1 );
+                    endFloor = toInt( cmd, item + 1, endEnd );
+                    item = endEnd;
+                }
+
+                if ( startFloor > endFloor ) {
+                    int t = startFloor;
+                    startFloor = endFloor;
+                    endFloor = t;
+                }
+
+                for( ; startFloor <= endFloor; ++startFloor ) {
+                    batch.carCall( elevator.getIndex() - 1, startFloor );
+                }
+
+                while ( item < listEnd && cmd.charAt( item ) == ',' ) {
+                    ++item;
+                }
+            }
+            elevatorSystem.submit( batch );
+            pos = listEnd;
+        }
+        return ParseCommand.OK;
+    }
+
+    /** 
+     * Scans one or more "f[floor]u", "f[floor]d" or "f[floor]t[floor]" commands.
+     */
+    protected String scanFloor( String cmd ) {
+        int length = cmd.length();
+        int pos = 0;
+
+        while ( pos < length ) {
+            int floorEnd = digitsEnd( cmd, pos + 1 );
+
+            if ( cmd.charAt( pos ) != 'f' || floorEnd < 0 || floorEnd >= length ) {
+                return rest( floorCommand, cmd, pos );
+            }
+
+            int     floor = toInt( cmd, pos + 1, floorEnd );
+            char    upordown = cmd.charAt( floorEnd );
+
+            if ( upordown == 'u' || upordown == 'd' ) {
+                elevatorSystem.floorRequest( floor, upordown == 'd' ? Movement.DOWN : Movement.UP );
+                pos = floorEnd + 1;
+                continue;
+            }
+
+            int destinationEnd = digitsEnd( cmd, floorEnd + 1 );
+
+            if ( upordown != 't' || destinationEnd < 0 ) {
+                return rest( floorCommand, cmd, pos );
+            }
+
+            elevatorSystem.destinationRequest( floor, toInt( cmd, floorEnd + 1, destinationEnd ) );
+            pos = destinationEnd;
+        }
+        return ParseCommand.OK;
+    }
+
+    /** 
+     * Scans one or more "n[numElevator]f[numFloors]" commands.
+     */
+    protected String scanNumberElevatorFloors( String cmd ) {
+        int length = cmd.length();
+        int pos = 0;
+
+        while ( pos < length ) {
+            int elevatorsEnd = digitsEnd( cmd, pos + 1 );
+            int floorsEnd = elevatorsEnd < 0 || elevatorsEnd >= length ? -1 : 
+                            digitsEnd( cmd, elevatorsEnd + 1 );
+
+            if ( cmd.charAt( pos ) != 'n' || floorsEnd < 0 || 
+                 cmd.charAt( elevatorsEnd ) != 'f' ) {
+                return rest( numberCommand, cmd, pos );
+            }
+
+            elevatorSystem.initialize( toInt( cmd, pos + 1, elevatorsEnd ), 
+                                       toInt( cmd, elevatorsEnd + 1, floorsEnd ) );
+            pos = floorsEnd;
+        }
+        return ParseCommand.OK;
+    }
+
+    /** 
+     * Hands the rest of a command, from where scanning stopped, to it's 
+     * regex parser.
+     */
+    protected String rest( ParseCommand command, String cmd, int pos ) {
+        return command.Parse( pos == 0 ? cmd : cmd.substring( pos ) );
+    }
+
+    /** 
+     * Returns the end of a floor button list, after checking it is floors
+     * or ranges separated by commas, with nothing else before the end of 
+     * the command or the next command.
+     * 
+     * @return the end of the list, or -1 if it is not a plain list
+     */
+    protected static int listEnd( String cmd, int pos ) {
+        int length = cmd.length();
+
+        while ( true ) {
+            pos = digitsEnd( cmd, pos );
+
+            if ( pos >= 0 && pos < length && cmd.charAt( pos ) == '-' ) {
+                pos = digitsEnd( cmd, pos + 1 );
+            }
+
+            if ( pos < 0 ) {
+                return -1;
+            }
+
+            if ( pos + 1 < length && cmd.charAt( pos ) == ',' && isDigit( cmd.charAt( pos + 1 ) ) ) {
+                ++pos;
+                continue;
+            }
+            break;
+        }
+
+        while ( pos < length && cmd.charAt( pos ) == ',' ) {
+            ++pos;
+        }
+
+        // A list ends at the end of the command or a new command, anything
+        // else such as "1-2-3" or "1,,2" is left to the regex parser.
+        if ( pos < length && ( isDigit( cmd.charAt( pos ) ) || cmd.charAt( pos ) == '-' ) ) {
+            return -1;
+        }
+        return pos;
+    }
+
+    /** 
+     * Returns the end of the digits starting at pos.
+     * 
+     * @return the end, or -1 if there are no digits or too many to be an int
+     */
+    protected static int digitsEnd( String cmd, int pos ) {
+        int end = pos;
+
+        while ( end < cmd.length() && isDigit( cmd.charAt( end ) ) ) {
+            ++end;
+        }
+
+        if ( end == pos || end - pos > MAX_DIGITS ) {
+            return -1;
+        }
+        return end;
+    }
+
+    protected static boolean isDigit( char c ) {
+        return c >= '0' && c <= '9';
+    }
+
+    protected static int toInt( String cmd, int start, int end ) {
+        int value = 0;
+
+        for ( int i = start; i < end; ++i ) {
+            value = 10 * value + ( cmd.charAt( i ) - '0' );
+        }
+        return value;
+    }
+}
@@ -0,0 +1,326 @@
+/*
+ * Copyright (C) 2017 glbrimhall.com
+ *
+ * This file is part of an Elevator Simulator program written in java.
+ *
+ * Elevator Simulator program is free software: you can redistribute it and/or 
+ * modify it under the terms of the GNU General Public License as published
+ * by the Free Software Foundation, version 3 of the License.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.glbrimhall.elevator;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.util.Iterator;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * CommandServer is a socket front-end to an {@link ElevatorSystem}, so many
+ * button panel controllers can stream calls to one building. It listens on
+ * localhost, and one thread serves every connection through a Selector.
+ * <p>
+ * A connection can send the console's call commands, one per line, and 
+ * each non-empty line is answered with the parser's reply on a line of 
+ * it's own. A line longer than MAX_LINE is refused without running any of
+ * it. Options and the other commands are refused, see 
+ * {@link ParseList#ParseRemote(String)} It can also send fixed width binary frames for hall and car calls, 
+ * which are not answered:
+ * <pre>
+ *   byte  type       HALL_CALL or CAR_CALL
+ *   byte  direction  0 for UP, 1 for DOWN, only used by a hall call
+ *   short elevator   1 based elevator number, only used by a car call
+ *   int   floor      the floor called
+ * </pre>
+ * All in network byte order. Text and frames can be mixed on a connection,
+ * as the frame types are control characters no text command starts with.
+ */
+public class CommandServer implements Runnable {
+    public static final byte        HALL_CALL = 1;
+    public static final byte        CAR_CALL = 2;
+    public static final int         FRAME_SIZE = 8;
+    protected static final int      BUFFER_SIZE = 1 << 16;
+    protected static final int      MAX_LINE = 1024;
+
+    protected ElevatorSystem        system = null;
+    protected Selector              selector = null;
+    protected ServerSocketChannel   serverChannel = null;
+    protected Thread                thread = null;
+    protected volatile boolean      running;
+    protected volatile long         frames;
+    protected volatile long         lines;
+    protected volatile long         errors;
+
+    /**
+     * The buffers of one connection. Replies are only added while there is
+     * room for the longest one, otherwise reading stops until they are sent.
+     */
+    protected static class Connection {
+        protected final ByteBuffer      input = ByteBuffer.allocate( BUFFER_SIZE );
+        protected final ByteBuffer      output = ByteBuffer.allocate( BUFFER_SIZE );
+        protected final StringBuilder   line = new StringBuilder();
+        protected boolean               overlong;
+    }
+
+    /** 
+     * Opens the server socket on localhost.
+     * 
+     * @param system the ElevatorSystem the commands run on
+     * @param port the port to listen on, 0 picks a free port
+     * @throws IOException if the port could not be opened
+     */
+    public CommandServer( ElevatorSystem system, int port ) throws IOException {
+        this.system = system;
+        this.selector = Selector.open();
+        this.serverChannel = ServerSocketChannel.open();
+        this.serverChannel.bind( new InetSocketAddress( InetAddress.getLoopbackAddress(), port ) );
+        this.serverChannel.configureBlocking( false );
+        this.serverChannel.register( selector, SelectionKey.OP_ACCEPT );
+    }
+
+    /** 
+     * Returns the port the server is listening on.
+     */
+    public int getPort() { return serverChannel.socket().getLocalPort(); }
+
+    /** 
+     * Returns the number of binary frames received.
+     */
+    public long getFrames() { return frames; }
+
+    /** 
+     * Returns the number of text commands received.
+     */
+    public long getLines() { return lines; }
+
+    /** 
+     * Returns the number of frames and lines that could not be used.
+     */
+    public long getErrors() { return errors; }
+
+    /** 
+     * Starts serving connections on a daemon thread.
+     */
+    public void start() {
+        running = true;
+        thread = new Thread( this, "CommandServer" );
+        thread.setDaemon( true );
+        thread.start();
+    }
+
+    /** 
+     * Closes the server socket and every connection, and waits for the
+     * server's thread to finish.
+     */
+    public void stop() throws InterruptedException {
+        running = false;
+        selector.wakeup();
+
+        if ( thread != null ) {
+            thread.join();
+        }
+    }
+
+    @Override
+    public void run() {
+        try {
+            while ( running ) {
+                selector.select();
+
+                Iterator< SelectionKey > ready = selector.selectedKeys().iterator();
+
+                while ( ready.hasNext() ) {
+                    SelectionKey key = ready.next();
+                    ready.remove();
+
+                    try {
+                        if ( key.isAcceptable() ) {
+                            accept();
+                        }
+                        else {
+                            serve( key );
+                        }
+                    } catch ( IOException ex ) {
+                        close( key );
+                    }
+                }
+            }
+        } catch ( IOException ex ) {
+            Logger.getLogger( getClass().getName() ).log( Level.SEVERE, null, ex );
+        } finally {
+            for ( SelectionKey key: selector.keys() ) {
+                close( key );
+            }
+
+            try {
+                selector.close();
+            } catch ( IOException ex ) {
+            }
+        }
+    }
+
+    protected void accept() throws IOException {
+        SocketChannel client = serverChannel.accept();
+
+        if ( client == null ) {
+            return;
+        }
+        client.configureBlocking( false );
+        client.socket().setTcpNoDelay( true );
+        client.register( selector, SelectionKey.OP_READ, new Connection() );
+    }
+
+    protected void close( SelectionKey key ) {
+        key.cancel();
+
+        try {
+            key.channel().close();
+        } catch ( IOException ex ) {
+        }
+    }
+
+    /** 
+     * Reads what a connection sent, runs the complete commands, and sends
+     * the replies.
+     */
+    protected void serve( SelectionKey key ) throws IOException {
+        SocketChannel   client = (SocketChannel) key.channel();
+        Connection      connection = (Connection) key.attachment();
+        
+        boolean         full;
+        
+        if ( key.isReadable() && client.read( connection.input ) < 0 ) {
+            close( key );
+            return;
+        }
+
+        // Runs again if the replies filled the output but could all be sent.
+        do {
+            connection.input.flip();
+            full = process( connection );
+            connection.input.compact();
+
+            connection.output.flip();
+            client.write( connection.output );
+            connection.output.compact();
+        } while ( full && connection.output.position() == 0 );
+
+        // Stop reading while replies are waiting to be sent, so a client
+        // that does not read can't make the server buffer without limit.
+        if ( connection.output.position() > 0 ) {
+            key.interestOps( SelectionKey.OP_WRITE );
+        }
+        else {
+            key.interestOps( SelectionKey.OP_READ );
+        }
+    }
+
+    /** 
+     * Runs every complete frame and line in a connection's input.
+     * 
+     * @return true if it stopped because the output has no room for a reply
+     */
+    protected boolean process( Connection connection ) {
+        ByteBuffer  input = connection.input;
+
+        while ( input.hasRemaining() ) {
+            if ( connection.output.remaining() <= MAX_LINE + 1 ) {
+                return true;
+            }
+
+            byte type = input.get( input.position() );
+
+            if ( connection.line.length() == 0 && ( type == HALL_CALL || type == CAR_CALL ) ) {
+                if ( input.remaining() < FRAME_SIZE ) {
+                    return false;
+                }
+                frame( input.get(), input.get(), input.getShort(), input.getInt() );
+                continue;
+            }
+
+            char c = (char) ( input.get() & 0xff );
+
+            if ( c == '\n' ) {
+                line( connection );
+            }
+            else
+            if ( c != '\r' ) {
+                if ( connection.line.length() < MAX_LINE ) {
+                    connection.line.append( c );
+                }
+                else {
+                    connection.overlong = true;
+                }
+            }
+        }
+        return false;
+    }
+
+    /** 
+     * Runs a binary hall or car call.
+     */
+    protected void frame( byte type, byte direction, short elevator, int floor ) {
+        ++frames;
+
+        if ( ! system.isInitialized() || floor < 0 || floor > system.getMaxFloors() ) {
+            ++errors;
+            return;
+        }
+
+        // getElevator() would hand an unknown elevator's call to another one.
+        if ( type == CAR_CALL && ( elevator < 1 || elevator > system.getElevatorList().size() ) ) {
+            ++errors;
+            return;
+        }
+
+        if ( type == HALL_CALL ) {
+            system.floorRequest( floor, direction == 0 ? Movement.UP : Movement.DOWN );
+        }
+        else {
+            system.getElevator( elevator - 1 ).buttonPressed( floor );
+        }
+    }
+
+    /** 
+     * Runs a text command and queues it's reply. Empty lines are skipped.
+     */
+    protected void line( Connection connection ) {
+        if ( connection.line.length() == 0 ) {
+            return;
+        }
+
+        ++lines;
+
+        // A command cut short, such as part of a floor list, is not run.
+        String  reply = connection.overlong ? "Line longer than " + MAX_LINE + " characters"
+                                            : system.getParser().ParseRemote( connection.line.toString() );
+        int     length = Math.min( reply.length(), MAX_LINE );
+
+        connection.line.setLength( 0 );
+        connection.overlong = false;
+
+        if ( ! ParseCommand.OK.equals( reply ) ) {
+            ++errors;
+        }
+
+        // The replies are ascii, copied as is like the status report.
+        for ( int i = 0; i < length; ++i ) {
+            connection.output.put( (byte) reply.charAt( i ) );
+        }
+        connection.output.put( (byte) '\n' );
+    }
+}
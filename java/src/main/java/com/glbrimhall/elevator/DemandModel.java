@@ -0,0 +1,151 @@
+/*
+ * Copyright (C) 2017 glbrimhall.com
+ *
+ * This file is part of an Elevator Simulator program written in java.
+ *
+ * Elevator Simulator program is free software: you can redistribute it and/or 
+ * modify it under the terms of the GNU General Public License as published
+ * by the Free Software Foundation, version 3 of the License.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.glbrimhall.elevator;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * The DemandModel learns how often each floor and direction is called at
+ * each time of day, from the hall calls the {@link ElevatorSystem} sees.
+ * The day is split into buckets of 15 minutes, and each floor and direction
+ * keeps a count per bucket. A count fades by DAY_DECAY for each day since
+ * it was last added to, when it's next read or added to, so a call costs 
+ * the same no matter how many floors or days there are, and the model 
+ * follows the building's demand as it changes.
+ * <p>
+ * Each count is packed into one long with the day it was last added to, 
+ * same as the {@link DispatchIndex} summaries, so a call adds to it with a
+ * compare and set instead of a lock on the dispatch path:
+ * <pre>
+ *   bits  0-39  count, fixed point with FRACTION_BITS of fraction
+ *   bits 40-63  day it was last added to
+ * </pre>
+ */
+public class DemandModel {
+    public static final long        DAY_MILLIS = 24L * 60 * 60 * 1000;
+    public static final int         BUCKETS = 96;
+    public static final long        BUCKET_MILLIS = DAY_MILLIS / BUCKETS;
+    public static final double      DAY_DECAY = 0.75;
+    protected static final double[] DECAY = new double[ 64 ];
+    protected static final int      FRACTION_BITS = 16;
+    protected static final long     ONE = 1L << FRACTION_BITS;
+    protected static final int      DAY_SHIFT = 40;
+    protected static final long     COUNT_MASK = ( 1L << DAY_SHIFT ) - 1;
+
+    protected final int             slots;
+    protected final AtomicLongArray cells;
+
+    static {
+        DECAY[ 0 ] = 1.0;
+
+        for ( int day = 1; day < DECAY.length; ++day ) {
+            DECAY[ day ] = DECAY[ day - 1 ] * DAY_DECAY;
+        }
+    }
+
+    /** 
+     * @param maxFloors the top floor number of the building
+     */
+    public DemandModel( int maxFloors ) {
+        this.slots = 2 * ( Math.max( 0, maxFloors ) + 1 );
+        this.cells = new AtomicLongArray( BUCKETS * slots );
+    }
+
+    /** 
+     * Returns the number of floors and directions modeled, see {@link #slot(int, Movement)}
+     */
+    public int getSlots() { return slots; }
+
+    /** 
+     * Returns the index of a floor and direction, same as the {@link ElevatorMetrics}.
+     */
+    public static int slot( int floor, Movement direction ) {
+        return 2 * floor + ( direction == Movement.DOWN && floor != 0 ? 1 : 0 );
+    }
+
+    /** 
+     * Adds a hall call at the time of day it was made, without locking.
+     * 
+     * @param request the floor and direction called
+     * @param millis the time of the call on the system's clock, where 0 is
+     *               the start of a day
+     */
+    public void hallCalled( FloorRequest request, long millis ) {
+        int slot = slot( request.floor, request.direction );
+
+        if ( slot < 0 || slot >= slots || millis < 0 ) {
+            return;
+        }
+
+        int     index = bucket( millis ) * slots + slot;
+        long    day = millis / DAY_MILLIS;
+        long    old;
+        long    cell;
+
+        do {
+            old = cells.get( index );
+
+            long count = Math.min( decayed( old, day ) + ONE, COUNT_MASK );
+
+            cell = ( Math.max( day, old >>> DAY_SHIFT ) << DAY_SHIFT ) | count;
+        } while ( ! cells.compareAndSet( index, old, cell ) );
+    }
+
+    /** 
+     * Predicts the calls of a floor and direction around a time of day, as
+     * it's counts of the bucket before, at and after the time. The bucket
+     * before has the calls of the day so far, and the one after has the calls
+     * of the days before that are coming up.
+     * 
+     * @param slot the floor and direction, see {@link #slot(int, Movement)}
+     * @param millis the time on the system's clock
+     * @return the faded count of calls
+     */
+    public double predict( int slot, long millis ) {
+        if ( slot < 0 || slot >= slots || millis < 0 ) {
+            return 0.0;
+        }
+
+        int     bucket = bucket( millis );
+        long    day = millis / DAY_MILLIS;
+        long    calls = 0;
+
+        for ( int offset = BUCKETS - 1; offset <= BUCKETS + 1; ++offset ) {
+            calls += decayed( cells.get( ( ( bucket + offset ) % BUCKETS ) * slots + slot ), day );
+        }
+        return (double) calls / ONE;
+    }
+
+    protected static int bucket( long millis ) {
+        return (int)( ( millis % DAY_MILLIS ) / BUCKET_MILLIS );
+    }
+
+    /** 
+     * Returns a cell's fixed point count faded for the days since it was 
+     * last added to.
+     */
+    protected static long decayed( long cell, long day ) {
+        long age = day - ( cell >>> DAY_SHIFT );
+        long count = cell & COUNT_MASK;
+
+        if ( age <= 0 ) {
+            return count;
+        }
+        return age < DECAY.length ? (long)( count * DECAY[ (int) age ] ) : 0;
+    }
+}
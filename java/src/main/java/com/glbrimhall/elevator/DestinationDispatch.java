@@ -0,0 +1,104 @@
+/*
+ * Copyright (C) 2017 glbrimhall.com
+ *
+ * This file is part of an Elevator Simulator program written in java.
+ *
+ * Elevator Simulator program is free software: you can redistribute it and/or 
+ * modify it under the terms of the GNU General Public License as published
+ * by the Free Software Foundation, version 3 of the License.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.glbrimhall.elevator;
+
+import java.util.Arrays;
+
+/**
+ * DestinationDispatch groups passengers by the floor they are going to, as 
+ * entered on a destination panel, eg f3t12. A passenger is sent to the 
+ * elevator already taking others to the same floor and direction, as long
+ * as it is not more than a door cycle later than the elevator with the best
+ * {@link EtaDispatch} estimate. Requests without a destination are dispatched
+ * by their estimate alone.
+ */
+public class DestinationDispatch extends EtaDispatch {
+    protected int[]     upGroups = new int[ 0 ];
+    protected int[]     downGroups = new int[ 0 ];
+
+    @Override
+    public String getName() { return "destination"; }
+
+    @Override
+    public synchronized int selectElevator( ElevatorSystem system, FloorRequest request, int destination ) {
+        int selected = super.selectElevator( system, request, destination );
+
+        if ( selected < 0 || destination < 0 || destination > system.getMaxFloors() ) {
+            return selected;
+        }
+
+        int[]   groups = getGroups( system, request.direction );
+        int     grouped = groups[ destination ];
+
+        if ( grouped >= 0 && grouped != selected && 
+             isGroupingCheaper( system, request, destination, grouped, selected ) ) {
+            selected = grouped;
+        }
+
+        groups[ destination ] = selected;
+        return selected;
+    }
+
+    /** 
+     * Returns the elevator last sent to each floor in a direction, sized
+     * to the building's floors.
+     */
+    protected int[] getGroups( ElevatorSystem system, Movement direction ) {
+        int numFloors = system.getMaxFloors() + 1;
+
+        if ( upGroups.length != numFloors ) {
+            upGroups = new int[ numFloors ];
+            downGroups = new int[ numFloors ];
+            Arrays.fill( upGroups, -1 );
+            Arrays.fill( downGroups, -1 );
+        }
+        return direction == Movement.DOWN ? downGroups : upGroups;
+    }
+
+    /** 
+     * Indicates the grouped elevator is still going to the destination, and 
+     * is within a door cycle of the selected elevator's estimate.
+     */
+    protected boolean isGroupingCheaper( ElevatorSystem system, FloorRequest request, 
+                                         int destination, int grouped, int selected ) {
+        DispatchIndex   index = system.getDispatchIndex();
+
+        if ( grouped >= index.size() ) {
+            return false;
+        }
+
+        long            groupedSummary = index.getSummary( grouped );
+
+        if ( DispatchIndex.isInMaintenence( groupedSummary ) ) {
+            return false;
+        }
+
+        Elevator        groupedElevator = system.getElevatorList().get( grouped );
+        Elevator        selectedElevator = system.getElevatorList().get( selected );
+        FloorRequest    stop = system.getFloorRequests().get( destination, request.direction );
+
+        if ( ! groupedElevator.getQueue().containsFloor( stop ) ) {
+            return false;
+        }
+
+        long groupedEta = estimateMillis( groupedSummary, groupedElevator, request );
+        long selectedEta = estimateMillis( index.getSummary( selected ), selectedElevator, request );
+
+        return groupedEta <= selectedEta + groupedElevator.getDwellMillis();
+    }
+}
@@ -0,0 +1,259 @@
+/*
+ * Copyright (C) 2017 glbrimhall.com
+ *
+ * This file is part of an Elevator Simulator program written in java.
+ *
+ * Elevator Simulator program is free software: you can redistribute it and/or 
+ * modify it under the terms of the GNU General Public License as published
+ * by the Free Software Foundation, version 3 of the License.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.glbrimhall.elevator;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * DispatchIndex keeps a cost summary of every elevator, indexed by the zero
+ * based elevator number, so a floor request can be dispatched without taking
+ * each {@link ElevatorQueue}'s lock. A summary packs the floor being serviced,
+ * the lowest and highest floor queued, the direction, whether the queue 
+ * is empty or the elevator is in maintenence, and the number of stops queued
+ * into a single long. The queue publishes it each time it changes, and an
+ * {@link IDispatchStrategy} reads it atomically.
+ */
+public class DispatchIndex {
+    protected AtomicLongArray           summaries = null;
+
+    protected static final int          FLOOR_BITS = 16;
+    protected static final long         FLOOR_MASK = ( 1L << FLOOR_BITS ) - 1;
+    protected static final int          LOWEST_SHIFT = FLOOR_BITS;
+    protected static final int          HIGHEST_SHIFT = 2 * FLOOR_BITS;
+    protected static final long         DOWN = 1L << ( 3 * FLOOR_BITS );
+    protected static final long         EMPTY = DOWN << 1;
+    protected static final long         MAINTENENCE = DOWN << 2;
+    protected static final int          STOPS_SHIFT = 3 * FLOOR_BITS + 3;
+    protected static final long         STOPS_MASK = ( 1L << 12 ) - 1;
+
+    /** 
+     * @param numElevators the number of elevators to index, which all start
+     *                     out empty at floor zero.
+     */
+    public DispatchIndex( int numElevators ) {
+        summaries = new AtomicLongArray( numElevators );
+
+        for ( int i = 0; i < numElevators; ++i ) {
+            summaries.set( i, EMPTY );
+        }
+    }
+
+    /** 
+     * Returns the number of elevators in the index.
+     */
+    public int size() { return summaries.length(); }
+
+    /** 
+     * Returns the packed summary of an elevator, to be read with the
+     * static methods of this class.
+     * 
+     * @param slot the zero based elevator number
+     */
+    public long getSummary( int slot ) { return summaries.get( slot ); }
+
+    /** 
+     * Publishes the state of an elevator's queue, keeping it's maintenence
+     * flag. Called by the queue with it's lock held.
+     * 
+     * @param slot the zero based elevator number
+     * @param servicing the floor request being serviced
+     * @param lowestFloor the lowest floor queued
+     * @param highestFloor the highest floor queued
+     * @param stops the number of floors queued, zero when the queue is empty
+     */
+    public void publish( int slot, FloorRequest servicing, int lowestFloor, 
+                         int highestFloor, int stops ) {
+        boolean empty = stops == 0;
+        long summary = packFloor( servicing.floor ) 
+                     | ( packFloor( lowestFloor ) << LOWEST_SHIFT )
+                     | ( packFloor( highestFloor ) << HIGHEST_SHIFT )
+                     | ( Math.min( stops, STOPS_MASK ) << STOPS_SHIFT );
+
+        if ( servicing.direction == Movement.DOWN ) { summary |= DOWN; }
+        if ( empty ) { summary |= EMPTY; }
+
+        while ( true ) {
+            long old = summaries.get( slot );
+
+            if ( summaries.compareAndSet( slot, old, summary | ( old & MAINTENENCE ) ) ) {
+                return;
+            }
+        }
+    }
+
+    /** 
+     * Adds a stop assigned to an elevator but not queued yet to it's summary,
+     * so the requests dispatched before it's queued see the elevator's load.
+     * The queue's next {@link #publish(int, FloorRequest, int, int, int)} 
+     * replaces it with the queue as it is.
+     * 
+     * @param slot the zero based elevator number
+     * @param stop the floor request assigned to the elevator
+     */
+    public void reserve( int slot, FloorRequest stop ) {
+        while ( true ) {
+            long    old = summaries.get( slot );
+            int     lowestFloor = stop.floor;
+            int     highestFloor = stop.floor;
+            long    stops = Math.min( getStops( old ) + 1, STOPS_MASK );
+
+            if ( ( old & EMPTY ) == 0 ) {
+                lowestFloor = Math.min( lowestFloor, unpackFloor( old, LOWEST_SHIFT ) );
+                highestFloor = Math.max( highestFloor, unpackFloor( old, HIGHEST_SHIFT ) );
+            }
+
+            long summary = ( old & ( FLOOR_MASK | DOWN | MAINTENENCE ) )
+                         | ( packFloor( lowestFloor ) << LOWEST_SHIFT )
+                         | ( packFloor( highestFloor ) << HIGHEST_SHIFT )
+                         | ( stops << STOPS_SHIFT );
+
+            if ( summaries.compareAndSet( slot, old, summary ) ) {
+                return;
+            }
+        }
+    }
+
+    /** 
+     * Publishes whether an elevator is in maintenence.
+     * 
+     * @param slot the zero based elevator number
+     * @param new_value the elevator's maintenence mode
+     */
+    public void setInMaintenence( int slot, boolean new_value ) {
+        while ( true ) {
+            long old = summaries.get( slot );
+            long summary = new_value ? old | MAINTENENCE : old & ~MAINTENENCE;
+
+            if ( summaries.compareAndSet( slot, old, summary ) ) {
+                return;
+            }
+        }
+    }
+
+    /**
+     * Finds the elevator closest to a floor request, using the same rule as 
+     * {@link ElevatorQueue#distanceToFloor(FloorRequest)}. The only part of 
+     * the rule not in the summary is the one floor bonus for a queue already
+     * stopping at the request, so a queue's lock is only taken when that 
+     * bonus could make it the closest elevator.
+     * 
+     * @param request the floor and direction request
+     * @param maxDistance an elevator needs to be closer than this to be chosen
+     * @param elevators the elevators being indexed
+     * @return the zero based elevator number, or -1 if no elevator was closer
+     *         than maxDistance.
+     */
+    public int nearestElevator( FloorRequest request, int maxDistance, 
+                                List< Elevator > elevators ) {
+        int distance = maxDistance;
+        int selected = -1;
+
+        for ( int i = 0; i < summaries.length(); ++i ) {
+            long summary = summaries.get( i );
+
+            if ( ( summary & MAINTENENCE ) != 0 ) {
+                continue;
+            }
+
+            int elevator_distance = distance( summary, request );
+
+            if ( elevator_distance - 1 >= distance ) {
+                continue;
+            }
+
+            if ( ( summary & EMPTY ) == 0 &&
+                 elevators.get( i ).getQueue().containsFloor( request ) ) {
+                --elevator_distance;
+            }
+
+            if ( elevator_distance < distance ) {
+                distance = elevator_distance;
+                selected = i;
+            }
+        }
+        return selected;
+    }
+
+    /** 
+     * Indicates the summarized elevator is in maintenence.
+     */
+    public static boolean isInMaintenence( long summary ) {
+        return ( summary & MAINTENENCE ) != 0;
+    }
+
+    /** 
+     * Indicates the summarized elevator has nothing queued.
+     */
+    public static boolean isEmpty( long summary ) {
+        return ( summary & EMPTY ) != 0;
+    }
+
+    /** 
+     * Returns the floor the summarized elevator is servicing.
+     */
+    public static int getFloor( long summary ) {
+        return unpackFloor( summary, 0 );
+    }
+
+    /** 
+     * Returns the number of floors the summarized elevator has queued.
+     */
+    public static int getStops( long summary ) {
+        return (int)( ( summary >>> STOPS_SHIFT ) & STOPS_MASK );
+    }
+
+    /**
+     * Calculates the distance of an elevator from a request from it's summary,
+     * leaving out the bonus for already stopping at the request.
+     */
+    public static int distance( long summary, FloorRequest request ) {
+        int floor = unpackFloor( summary, 0 );
+
+        if ( ( summary & EMPTY ) != 0 ) {
+            return Math.abs( floor - request.floor );
+        }
+
+        boolean down = ( summary & DOWN ) != 0;
+
+        if ( request.direction == Movement.UP && ! down && floor < request.floor ) {
+            return request.floor - floor;
+        }
+        if ( request.direction == Movement.DOWN && down && floor > request.floor ) {
+            return floor - request.floor;
+        }
+
+        if ( down ) {
+            int lowestFloor = unpackFloor( summary, LOWEST_SHIFT );
+
+            return Math.abs( request.floor - lowestFloor ) + ( floor - lowestFloor );
+        }
+
+        int highestFloor = unpackFloor( summary, HIGHEST_SHIFT );
+
+        return Math.abs( highestFloor - request.floor ) + ( highestFloor - floor );
+    }
+
+    protected static long packFloor( int floor ) {
+        return Math.min( Math.max( floor, 0 ), FLOOR_MASK );
+    }
+
+    protected static int unpackFloor( long summary, int shift ) {
+        return (int)( ( summary >>> shift ) & FLOOR_MASK );
+    }
+}
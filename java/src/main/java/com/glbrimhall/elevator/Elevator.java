@@ -17,8 +17,6 @@
  */
 package com.glbrimhall.elevator;
 
-import java.util.Formatter;
-
 /**
  * Elevator represents a single elevator, containing it's {@link ElevatorQueue}
  * and running Thread. It manages movement, the opening/closing of doors, 
@@ -28,31 +26,120 @@ public class Elevator implements Runnable {
 
     // Data Members
     protected ElevatorQueue             queue = null;
-    protected long                      traversedFloors;
-    protected long                      numRequests;
+    protected volatile long             traversedFloors;
+    protected volatile long             numRequests;
     protected int                       defaultDoorOpenWaitSeconds;
-    protected boolean                   inMaintenence;
-    protected boolean                   moving;
+    protected volatile boolean          inMaintenence;
+    protected volatile boolean          moving;
     protected int                       elevatorIndex;
     protected Thread                    thread;
+    protected ISimulationClock          clock;
+    protected DispatchIndex             dispatchIndex;
+    protected ElevatorMetrics           metrics;
+    protected volatile IArrivalListener arrivalListener;
+    protected volatile MotionModel      motion;
+    protected volatile Journal          journal;
+    protected volatile FlightRecorder   recorder;
+    protected volatile IParkingStrategy parking;
+    protected volatile long             doorsOpenedMillis;
+    protected volatile long             idleSince = -1;
+    protected volatile long             idleMillis;
+    protected volatile long             stateVersion;
+    protected volatile ElevatorSnapshot snapshot;
+    protected long                      snapshotQueueVersion = -1;
+    protected boolean                   eventDriven;
+    protected Runnable                  stepEvent;
+    protected Runnable                  arriveEvent;
+    protected Runnable                  wakeupEvent;
+    protected Runnable                  repositionEvent;
+    protected static final long         IDLE_RECHECK_MILLIS = 60000;
     
     /** 
      * @param number which elevator number this instance represents
      */
     public Elevator( int number )
     {
-        queue = new ElevatorQueue();
+        this( number, new RealTimeClock() );
+    }
+
+    /** 
+     * @param number which elevator number this instance represents
+     * @param clock the {@link ISimulationClock} the elevator runs on
+     */
+    public Elevator( int number, ISimulationClock clock )
+    {
+        this( number, clock, clock.isVirtual() );
+    }
+
+    /** 
+     * @param number which elevator number this instance represents
+     * @param clock the {@link ISimulationClock} the elevator runs on
+     * @param eventDriven true to run the elevator as scheduled events on the
+     *                    clock's shared scheduler, false to give it it's own
+     *                    thread. A virtual clock is always event driven.
+     */
+    public Elevator( int number, ISimulationClock clock, boolean eventDriven )
+    {
+        this( number, clock, eventDriven, new ElevatorQueue() );
+    }
+
+    /** 
+     * @param number which elevator number this instance represents
+     * @param clock the {@link ISimulationClock} the elevator runs on
+     * @param eventDriven true to run the elevator as scheduled events
+     * @param queue the {@link ElevatorQueue} or {@link BitSetElevatorQueue}
+     *              holding the floors the elevator is servicing
+     */
+    public Elevator( int number, ISimulationClock clock, boolean eventDriven, 
+                     ElevatorQueue queue )
+    {
+        this.queue = queue;
         this.traversedFloors = 0;
         this.numRequests = 0;
         this.defaultDoorOpenWaitSeconds = 3;
         this.inMaintenence = false;
         this.moving = false;
         this.elevatorIndex = number;
-        this.thread = new Thread( this );
+        this.clock = clock;
+        this.eventDriven = eventDriven || clock.isVirtual();
+        this.metrics = new ElevatorMetrics( queue.getFloorRequests().getMaxFloors() );
+        this.stepEvent = this::step;
+        this.arriveEvent = this::arrive;
+        this.wakeupEvent = this::wakeup;
+        this.repositionEvent = this::repositionIfIdle;
+
+        queue.setChangeListener( this::publishSnapshot );
+        publishSnapshot();
+
+        // An event driven elevator never needs a thread of it's own.
+        if ( ! this.eventDriven ) {
+            this.thread = new Thread( this );
+        }
+    }
+
+    /** 
+     * Starts the elevator running. It either runs in it's own thread, or
+     * is driven by events scheduled on the clock.
+     */
+    public void start()
+    {
+        doorsOpenedMillis = clock.currentMillis();
+
+        if ( eventDriven )
+        {
+            // Same as run(): waiting with door open at floor zero.
+            setIsMoving( false );
+            clock.schedule( getDwellMillis(), stepEvent );
+        }
+        else
+        {
+            thread.start();
+        }
     }
     
     /** 
      * Allows for an elevator's up/down movement to run in an independent thread.
+     * The thread stops once the elevator is offline or the thread is interrupted.
      */
     @Override
     public void run()
@@ -61,7 +148,7 @@ public class Elevator implements Runnable {
         // floor zero, waiting for first floor request:
         stopAndOpenDoors(0);
         
-        while( ! isOffline() )
+        while( ! isOffline() && ! Thread.currentThread().isInterrupted() )
         {
             movingToNextFloor();
         }
@@ -75,10 +162,70 @@ public class Elevator implements Runnable {
     public ElevatorQueue getQueue() { return queue; }
 
     /** 
-     * Returns the elevator's thread
+     * Sets the {@link DispatchIndex} the elevator and it's queue publish their
+     * state to, at the zero based elevator number.
+     */
+    public synchronized void setDispatchIndex( DispatchIndex index )
+    {
+        dispatchIndex = index;
+        index.setInMaintenence( elevatorIndex - 1, inMaintenence );
+        queue.setDispatchIndex( index, elevatorIndex - 1 );
+    }
+
+    /** 
+     * Returns the timing of the elevator's requests.
+     */
+    public ElevatorMetrics getMetrics() { return metrics; }
+
+    /** 
+     * Replaces the timing of the elevator's requests, eg with one that also
+     * records into the building's metrics.
+     */
+    public void setMetrics( ElevatorMetrics new_value ) { metrics = new_value; }
+
+    /** 
+     * Sets the {@link IArrivalListener} told of each stop the elevator 
+     * arrives at, or null for none.
+     */
+    public void setArrivalListener( IArrivalListener listener ) { arrivalListener = listener; }
+
+    /** 
+     * Sets the {@link Journal} the elevator's changes are recorded in, 
+     * or null for none.
+     */
+    public void setJournal( Journal new_value )
+    {
+        journal = new_value;
+        queue.setJournal( new_value, elevatorIndex );
+    }
+
+    /** 
+     * Sets the {@link FlightRecorder} the elevator's door cycles and queue 
+     * changes are recorded in, or null for none.
+     */
+    public void setFlightRecorder( FlightRecorder new_value )
+    {
+        recorder = new_value;
+        queue.setFlightRecorder( new_value, elevatorIndex );
+    }
+
+    /** 
+     * Sets the {@link IParkingStrategy} choosing where the elevator waits
+     * once it has nothing queued, or null to wait where it last stopped.
+     */
+    public void setParkingStrategy( IParkingStrategy new_value ) { parking = new_value; }
+
+    /** 
+     * Returns the elevator's thread, or null if it {@link #isEventDriven()}
      */
     public Thread getThread() { return thread; }
 
+    /** 
+     * Indicates the elevator is driven by events scheduled on the clock
+     * instead of running it's own thread.
+     */
+    public boolean isEventDriven() { return eventDriven; }
+
     /** 
      * Returns the assigned index of this elevator when it was created.
      */
@@ -123,7 +270,50 @@ public class Elevator implements Runnable {
     public boolean isMoving()    { return moving; }
 
     /** 
-     * Returns the total number of floors the elevator has serviced.
+     * Returns the number of seconds the elevator keeps it's doors open at a floor.
+     */
+    public int getDoorOpenWaitSeconds() { return defaultDoorOpenWaitSeconds; }
+
+    /** 
+     * Sets the number of seconds the elevator keeps it's doors open at a floor.
+     */
+    public void setDoorOpenWaitSeconds( int new_value ) { defaultDoorOpenWaitSeconds = Math.max( 1, new_value ); }
+
+    /** 
+     * Returns the {@link MotionModel} timing the car, or null if it moves 
+     * between floors instantly and keeps it's doors open for 
+     * {@link #getDoorOpenWaitSeconds()}
+     */
+    public MotionModel getMotionModel() { return motion; }
+
+    /** 
+     * Sets the {@link MotionModel} timing the car, or null for none.
+     * It takes effect from the next floor the car moves to.
+     */
+    public void setMotionModel( MotionModel new_value ) { motion = new_value; }
+
+    /** 
+     * Returns the milliseconds the car takes to travel a number of floors.
+     */
+    public long getTravelMillis( int floors )
+    {
+        MotionModel model = motion;
+
+        return model == null ? 0 : model.travelMillis( floors );
+    }
+
+    /** 
+     * Returns the milliseconds the car stands at a floor with it's doors open.
+     */
+    public long getDwellMillis()
+    {
+        MotionModel model = motion;
+
+        return model == null ? 1000L * defaultDoorOpenWaitSeconds : model.dwellMillis( 1 );
+    }
+
+    /** 
+     * Returns the total number of floors the elevator has traveled.
      * 
      * @return positive long integer
      */
@@ -135,6 +325,54 @@ public class Elevator implements Runnable {
      * of floors it has serviced.
      */
     public long getNumRequests() { return numRequests; }
+
+    /** 
+     * Returns the total milliseconds the elevator has waited with an empty
+     * queue, including the current wait.
+     */
+    public long getIdleMillis()
+    {
+        long since = idleSince;
+
+        if ( since < 0 )
+            { return idleMillis; }
+
+        return idleMillis + Math.max( 0, clock.currentMillis() - since );
+    }
+
+    /** 
+     * Marks the elevator waiting with an empty queue, only called by the 
+     * thread or event driving the elevator.
+     */
+    protected void startIdle()
+    {
+        if ( idleSince < 0 )
+            { idleSince = clock.currentMillis(); }
+    }
+
+    /** 
+     * Marks the elevator as no longer idle, adding up the time it waited.
+     */
+    protected void endIdle()
+    {
+        long since = idleSince;
+
+        if ( since >= 0 ) {
+            idleMillis += Math.max( 0, clock.currentMillis() - since );
+            idleSince = -1;
+        }
+    }
+
+    /** 
+     * Sets the counters of floors traveled and requests serviced, as 
+     * restored before the elevator starts. They only change with the 
+     * queue's lock held, and are volatile for the metrics threads reading them.
+     */
+    public void restoreCounters( long traversed, long requests )
+    {
+        traversedFloors = traversed;
+        numRequests = requests;
+    }
     
     /** 
      * Returns the next floor the elevator will stop at.
@@ -156,29 +394,70 @@ public class Elevator implements Runnable {
     public String reportStatus()
     {
         StringBuilder report = new StringBuilder();
-        Formatter     format = new Formatter(report);
-        
-        format.format("ELEVATOR[%2d] at floor %3d ", elevatorIndex, getCurrentFloor() );
-        format.flush();
-        
-        if ( isOffline() )
-        {
-            report.append( "offline. " );
-        }
-        else
-        if ( isMoving() )
-        {
-            report.append( "moving. " );
-        }
-        else
-        {
-            report.append( "waiting. " );
+        reportStatus( report );
+        return report.toString();
+    }
+
+    /** 
+     * Appends the status of the elevator to a report, without allocating.
+     */
+    public void reportStatus( StringBuilder report )
+    {
+        snapshot.report( report );
+    }
+
+    /** 
+     * Returns the latest immutable copy of the elevator's state, without 
+     * taking any locks.
+     */
+    public ElevatorSnapshot getSnapshot() { return snapshot; }
+
+    /** 
+     * Publishes a new {@link ElevatorSnapshot}. It is built and stored with
+     * the queue's lock held, so snapshots are published in the order the
+     * changes were made, and the queue and the flags are read together.
+     */
+    protected void publishSnapshot()
+    {
+        synchronized ( queue ) {
+            ElevatorSnapshot    last = snapshot;
+            FloorRequest[]      stops;
+
+            // A change to moving or maintenence shares the unchanged stops.
+            if ( last != null && snapshotQueueVersion == queue.getVersion() )
+                { stops = last.stops; }
+            else
+            {
+                stops = queue.toArray();
+                snapshotQueueVersion = queue.getVersion();
+            }
+
+            snapshot = new ElevatorSnapshot( elevatorIndex, queue.getServicing(), 
+                                             moving, inMaintenence, stops,
+                                             getStatusVersion() );
         }
+    }
 
-        report.append( "QUEUE " );
-        report.append( getQueue().report() );
-        report.append( "\n" );
-        return report.toString();
+    /** 
+     * Returns a counter that changes each time the elevator's status changes,
+     * be it it's queue, moving or maintenence.
+     */
+    public long getStatusVersion() { return stateVersion + queue.getVersion(); }
+
+    /** 
+     * Appends a number right aligned to a width, same as "%2d".
+     */
+    protected static void appendPadded( StringBuilder report, int value, int width )
+    {
+        int digits = value < 0 ? 2 : 1;
+
+        for ( int rest = Math.abs( value ) / 10; rest > 0; rest /= 10 )
+            { ++digits; }
+
+        for ( ; digits < width; ++digits )
+            { report.append( ' ' ); }
+
+        report.append( value );
     }
 
     /** 
@@ -190,7 +469,24 @@ public class Elevator implements Runnable {
      * @return boolean      containing the new maintenence mode value.
      */
     public synchronized boolean setInMaintenence(boolean new_value) 
-                                 { return inMaintenence = new_value; }
+    { 
+        synchronized ( queue ) {
+            inMaintenence = new_value;
+            ++stateVersion;
+            publishSnapshot();
+
+            if ( journal != null )
+                { journal.maintenence( elevatorIndex, new_value ); }
+        }
+
+        if ( dispatchIndex != null )
+            { dispatchIndex.setInMaintenence( elevatorIndex - 1, new_value ); }
+
+        // An idle elevator at floor zero may now be offline.
+        queue.signalWaiters();
+
+        return inMaintenence;
+    }
 
     /** 
      * Assumes the control panel for the floor buttons inside the
@@ -204,30 +500,84 @@ public class Elevator implements Runnable {
      */
     public boolean buttonPressed(int floor)
     {
-        if ( isInMaintenence() )
+        FloorRequest request = carRequest( floor );
+
+        if ( request == null )
             { return false; }
 
-        int currentFloor = getCurrentFloor();
-        
-        if ( currentFloor == floor ) { return false; }
+        // Timed from before it is queued, so the arrival can't be missed.
+        metrics.carCalled( floor, request.direction, clock.currentMillis() );
 
-        // Requirements check: should numRequests reflect number of times
-        // people pushed buttons or number of times button press resulted
-        // in actually being added to queue. Currented coded for the latter.
-        ++numRequests;
+        // The counters change with the queue's lock held, same as their
+        // journal records, so a SystemSnapshot reads them with the queue.
+        synchronized ( queue ) {
+            if ( ! queue.addFloor( request ) )
+                { return false; }
 
-        if ( currentFloor > floor )
-        {
-            queue.addFloor( new FloorRequest( floor, Movement.DOWN ) );
-        }
-        else
-        {
-            queue.addFloor( new FloorRequest( floor, Movement.UP ) );
+            // Requirements check: should numRequests reflect number of times
+            // people pushed buttons or number of times button press resulted
+            // in actually being added to queue. Currented coded for the latter.
+            ++numRequests;
+
+            if ( journal != null )
+                { journal.carCalls( elevatorIndex, 1 ); }
         }
             
         return true;
     }
     
+    /** 
+     * Returns the request a floor button pressed inside the elevator puts
+     * in it's queue, going UP or DOWN from the current floor.
+     * 
+     * @param floor    the requested floor
+     * @return         the request, or null if the elevator is in maintenence
+     *                 or already at the floor.
+     */
+    public FloorRequest carRequest(int floor)
+    {
+        if ( isInMaintenence() )
+            { return null; }
+
+        int currentFloor = getCurrentFloor();
+        
+        if ( currentFloor == floor ) { return null; }
+
+        Movement direction = Movement.UP;
+
+        if ( currentFloor > floor )
+            { direction = Movement.DOWN; }
+
+        return queue.getFloorRequests().get( floor, direction );
+    }
+
+    /** 
+     * Adds a group of requests to the queue under one lock, see
+     * {@link ElevatorQueue#addFloors(FloorRequest[], int, int)}
+     * 
+     * @param requests the array holding the requests
+     * @param from the index of the first request
+     * @param to the index after the last request
+     * @param carCalls how many of the requests, at the start of the range,
+     *                 are buttons pressed inside the elevator. Those added
+     *                 are counted by {@link #getNumRequests()}
+     * @return the number of requests added
+     */
+    public int addRequests( FloorRequest[] requests, int from, int to, int carCalls )
+    {
+        synchronized ( queue ) {
+            int added = queue.addFloors( requests, from, from + carCalls );
+
+            // Same as buttonPressed(), only the car calls actually added count.
+            numRequests += added;
+
+            if ( journal != null && added > 0 )
+                { journal.carCalls( elevatorIndex, added ); }
+
+            return added + queue.addFloors( requests, from + carCalls, to );
+        }
+    }
+
     /**
      * Calculates the distance of the elevator from an external
      * request on a floor. 
@@ -245,7 +595,8 @@ public class Elevator implements Runnable {
      * When this method returns it indicates the doors to the elevator
      * have safely closed.
      * 
-     * @param waitSeconds   number of seconds to wait with doors open.
+     * @param waitSeconds   number of seconds to wait with doors open, or 0
+     *                      for {@link #getDwellMillis()}
      * @return              the actual time the elevator waited before closing 
      *                      doors. It may be longer than waitSeconds if people
      *                      held the doors, or no much longer if empty and there 
@@ -253,27 +604,46 @@ public class Elevator implements Runnable {
      */
     protected int waitUntilDoorsClose( int waitSeconds ) 
     {
-        if ( waitSeconds <= 0 ) 
-            { waitSeconds = defaultDoorOpenWaitSeconds; }
-        
-        int actualSeconds = 0;
+        long openedMillis = clock.currentMillis();
         
         setIsMoving( false );
 
+        if ( isOffline() )
+            { return 0; }
+
         // This logic IS INCOMPLETE, needs more fleshing out to wait properly
         // incase people hold door open.
         // Note if a person comes into an elevator but never presses a floor 
         // button eleveator will just sit there ! 
-        while( ( queue.isEmpty() || actualSeconds < waitSeconds ) && ! isOffline() )
-        {
-            ElevatorSystem.sleepSeconds( getClass().getName(), 1 );
-            
-            ++actualSeconds;
-        }
+        if ( waitSeconds > 0 )
+            { clock.sleepSeconds( getClass().getName(), waitSeconds ); }
+        else
+            { clock.sleepMillis( getClass().getName(), getDwellMillis() ); }
+
+        // An empty queue blocks until addFloor() or setInMaintenence() 
+        // signals it, instead of checking back every second. Going offline 
+        // is checked inside the queue's lock before each wait, and an
+        // interrupt leaves the loop so run() can stop the thread.
+        if ( queue.isEmpty() )
+            { startIdle(); }
+
+        IParkingStrategy strategy = parking;
+
+        if ( strategy != null && ! queue.awaitNotEmpty( strategy.getParkingDelayMillis(), this::isOffline )
+             && ! Thread.currentThread().isInterrupted() )
+            { reposition(); }
+
+        while( ! isOffline() && ! Thread.currentThread().isInterrupted()
+               && ! queue.awaitNotEmpty( IDLE_RECHECK_MILLIS, this::isOffline ) )
+            { }
+
+        endIdle();
+
+        closeDoors();
         
         setIsMoving( true );
 
-        return actualSeconds;
+        return (int)( ( clock.currentMillis() - openedMillis ) / 1000 );
     }
     
     /** 
@@ -283,7 +653,16 @@ public class Elevator implements Runnable {
      * @return boolean of the new value.
      */
     protected synchronized boolean setIsMoving(boolean new_value) 
-                                 { return moving = new_value; }
+    { 
+        if ( moving == new_value )
+            { return moving; }
+
+        moving = new_value;
+        ++stateVersion;
+        publishSnapshot();
+
+        return moving; 
+    }
 
     /** 
      * This is a control method indicating the elevator should
@@ -312,12 +691,161 @@ public class Elevator implements Runnable {
      */
     protected boolean movingToNextFloor()
     {
-        ++traversedFloors;
-        
-        queue.moveFloor();
+        int nextFloor = queue.getNextFloor();
+
+        if ( nextFloor >= 0 )
+            { clock.sleepMillis( getClass().getName(), getTravelMillis( nextFloor - getCurrentFloor() ) ); }
+
+        arriveAtNextFloor();
         
         stopAndOpenDoors( 0 );
         
         return true;
     }
+
+    /** 
+     * Moves the elevator to the next floor in it's queue.
+     */
+    protected void arriveAtNextFloor()
+    {
+        FloorRequest        stop;
+        IArrivalListener    listener = arrivalListener;
+        FlightRecorder      flightRecorder = recorder;
+
+        synchronized ( queue ) {
+            int previousFloor = getCurrentFloor();
+
+            queue.moveFloor();
+
+            stop = queue.getServicing();
+            traversedFloors += Math.abs( stop.floor - previousFloor );
+        }
+
+        doorsOpenedMillis = clock.currentMillis();
+        metrics.arrived( stop, doorsOpenedMillis );
+
+        if ( flightRecorder != null )
+            { flightRecorder.record( FlightRecorder.DOORS_OPEN, elevatorIndex, stop, 0 ); }
+
+        if ( listener != null )
+            { listener.arrived( this, stop ); }
+    }
+
+    /** 
+     * Queues the floor chosen by the {@link IParkingStrategy} when the 
+     * elevator has nothing queued, if it's not already there.
+     */
+    protected void reposition()
+    {
+        IParkingStrategy strategy = parking;
+
+        if ( strategy == null || inMaintenence || ! queue.isEmpty() )
+            { return; }
+
+        FloorRequest target = strategy.selectParking( this );
+
+        if ( target != null && target.floor != getCurrentFloor() )
+            { queue.addFloor( target ); }
+    }
+
+    /** 
+     * Called once the {@link IParkingStrategy}'s delay is up after the 
+     * elevator went idle, repositioning it if it's been idle since.
+     */
+    protected void repositionIfIdle()
+    {
+        IParkingStrategy    strategy = parking;
+        long                since = idleSince;
+
+        if ( strategy != null && since >= 0 
+             && clock.currentMillis() - since >= strategy.getParkingDelayMillis() )
+            { reposition(); }
+    }
+
+    /** 
+     * Records the doors closing as the elevator leaves it's stop, with the
+     * time they were open.
+     */
+    protected void closeDoors()
+    {
+        FlightRecorder flightRecorder = recorder;
+
+        if ( flightRecorder != null ) {
+            flightRecorder.record( FlightRecorder.DOORS_CLOSED, elevatorIndex, queue.getServicing(), 
+                                   clock.currentMillis() - doorsOpenedMillis );
+        }
+    }
+
+    /** 
+     * This is the event driven equivalent of {@link #run()}, called each time
+     * the doors are ready to close. It moves to the next floor if there is a
+     * request, then schedules itself for when the doors should close again.
+     * With an empty queue the elevator parks, costing nothing until 
+     * {@link ElevatorQueue#addFloor(FloorRequest)} wakes it up.
+     */
+    protected void step()
+    {
+        if ( isOffline() )
+        {
+            setIsMoving( false );
+            return;
+        }
+
+        // Marked idle before parking, as the wakeup can run as soon as it is.
+        if ( queue.isEmpty() )
+        {
+            IParkingStrategy strategy = parking;
+
+            startIdle();
+
+            if ( strategy != null )
+                { clock.schedule( strategy.getParkingDelayMillis(), repositionEvent ); }
+        }
+
+        if ( queue.parkUntilNotEmpty( wakeupEvent ) )
+        {
+            return;
+        }
+
+        endIdle();
+
+        closeDoors();
+
+        setIsMoving( true );
+
+        // Timed to the next stop as it is now. A request added on the way 
+        // in the same direction is stopped at instead, arriving just as late.
+        long travelMillis = getTravelMillis( queue.getNextFloor() - getCurrentFloor() );
+
+        if ( travelMillis > 0 )
+        {
+            clock.schedule( travelMillis, arriveEvent );
+            return;
+        }
+
+        arrive();
+    }
+
+    /** 
+     * Called once the elevator has traveled to the next floor in it's queue,
+     * scheduling the next step for when the doors should close again.
+     */
+    protected void arrive()
+    {
+        arriveAtNextFloor();
+        setIsMoving( false );
+
+        clock.schedule( getDwellMillis(), stepEvent );
+    }
+
+    /** 
+     * Called by the queue when a floor is added to a parked elevator.
+     * The doors have already been open long enough, so the elevator
+     * steps as soon as the scheduler gets to it.
+     */
+    protected void wakeup()
+    {
+        endIdle();
+        clock.schedule( 0, stepEvent );
+    }
 }
@@ -0,0 +1,234 @@
+/*
+ * Copyright (C) 2017 glbrimhall.com
+ *
+ * This file is part of an Elevator Simulator program written in java.
+ *
+ * Elevator Simulator program is free software: you can redistribute it and/or 
+ * modify it under the terms of the GNU General Public License as published
+ * by the Free Software Foundation, version 3 of the License.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.glbrimhall.elevator;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+/**
+ * ElevatorCampus hosts many independent {@link ElevatorSystem} buildings on 
+ * a sharded engine. Each building id maps to one shard, and each shard is a 
+ * single thread that owns it's buildings: it runs their commands and their 
+ * elevators, which are event driven on a {@link RealTimeClock} over the 
+ * shard's executor. Buildings on different shards run in parallel and 
+ * share no locks, and the buildings of a shard never contend with each other.
+ * <p>
+ * The java runtime can't pin a thread to a cpu, so there is one shard per 
+ * cpu by default and the operating system keeps each shard's thread busy
+ * on a core of it's own.
+ */
+public class ElevatorCampus {
+    protected Shard[]   shards = null;
+
+    /**
+     * A shard is a single thread and the buildings it owns. The buildings
+     * map is only used from the shard's thread, so it needs no lock.
+     */
+    protected static class Shard implements ThreadFactory {
+        protected final int                                 shardIndex;
+        protected final ScheduledThreadPoolExecutor         executor;
+        protected final RealTimeClock                       clock;
+        protected final HashMap< Integer, ElevatorSystem >  buildings;
+
+        protected Shard( int shardIndex ) {
+            this.shardIndex = shardIndex;
+            this.executor = new ScheduledThreadPoolExecutor( 1, this );
+            this.clock = new RealTimeClock( executor );
+            this.buildings = new HashMap< Integer, ElevatorSystem >();
+        }
+
+        @Override
+        public Thread newThread( Runnable r ) {
+            Thread thread = new Thread( r, "ElevatorCampus-" + shardIndex );
+            thread.setDaemon( true );
+            return thread;
+        }
+
+        /** 
+         * Returns a building, creating it on the shard's clock the first 
+         * time it is used, with it's metrics named by the building id. 
+         * Only called on the shard's thread.
+         */
+        protected ElevatorSystem getBuilding( int buildingId ) {
+            ElevatorSystem building = buildings.get( buildingId );
+
+            if ( building == null ) {
+                building = new ElevatorSystem();
+                building.setClock( clock );
+                building.setThreadPerElevator( false );
+                building.getMetricsRegistry().setName( "building-" + buildingId );
+                buildings.put( buildingId, building );
+            }
+            return building;
+        }
+    }
+
+    /** 
+     * Creates a campus with one shard per cpu.
+     */
+    public ElevatorCampus() {
+        this( Runtime.getRuntime().availableProcessors() );
+    }
+
+    /** 
+     * @param numShards the number of threads the buildings are spread over
+     */
+    public ElevatorCampus( int numShards ) {
+        shards = new Shard[ Math.max( 1, numShards ) ];
+
+        for ( int i = 0; i < shards.length; ++i ) {
+            shards[ i ] = new Shard( i );
+        }
+    }
+
+    /** 
+     * Returns the number of shards.
+     */
+    public int getShardCount() { return shards.length; }
+
+    /** 
+     * Returns the shard a building id is routed to.
+     */
+    public int shardOf( int buildingId ) {
+        return Math.floorMod( buildingId, shards.length );
+    }
+
+    /** 
+     * Runs a task on a building, on the building's shard thread. The 
+     * building is created the first time it is used.
+     * 
+     * @param buildingId which building to run on
+     * @param task the work to do with the building
+     * @return the result of the task, once the shard has run it
+     */
+    public < T > Future< T > submit( int buildingId, Function< ElevatorSystem, T > task ) {
+        Shard shard = shards[ shardOf( buildingId ) ];
+
+        return shard.executor.submit( () -> task.apply( shard.getBuilding( buildingId ) ) );
+    }
+
+    /** 
+     * Parses a console command, eg "n3f10" or "f5u", for a building. Only
+     * the command creating it's elevators and those a {@link CommandServer}
+     * connection takes are run, see {@link ParseList#ParseRemote(String)}
+     * Options and quit would start threads, sockets or files outside the 
+     * shard, so buildings are otherwise configured through {@link #submit}
+     * 
+     * @return the parser's reply, once the shard has run the command
+     */
+    public Future< String > command( int buildingId, String cmd ) {
+        return submit( buildingId, building -> {
+            ParseList parser = building.getParser();
+
+            if ( cmd.startsWith( "n" ) && ! building.isInitialized() ) {
+                return parser.Parse( cmd );
+            }
+            return parser.ParseRemote( cmd );
+        } );
+    }
+
+    /** 
+     * Puts every building into maintenence, waits until their elevators
+     * are offline or the timeout passes, then stops the shards.
+     * 
+     * @param timeoutMillis the most milliseconds to wait for the elevators
+     */
+    public void shutdown( long timeoutMillis ) throws InterruptedException {
+        long    deadline = System.currentTimeMillis() + timeoutMillis;
+
+        for ( Shard shard: shards ) {
+            shard.executor.execute( () -> {
+                for ( ElevatorSystem building: shard.buildings.values() ) {
+                    building.shutdown();
+                }
+            } );
+        }
+
+        for ( Shard shard: shards ) {
+            while ( isRunning( shard ) && System.currentTimeMillis() < deadline ) {
+                Thread.sleep( 100 );
+            }
+            shard.executor.shutdownNow();
+            shard.executor.awaitTermination( 1, TimeUnit.SECONDS );
+        }
+    }
+
+    /** 
+     * Indicates whether any building of a shard still has an elevator online.
+     */
+    protected boolean isRunning( Shard shard ) throws InterruptedException {
+        try {
+            return shard.executor.submit( () -> {
+                for ( ElevatorSystem building: shard.buildings.values() ) {
+                    if ( building.isRunning() ) {
+                        return true;
+                    }
+                }
+                return false;
+            } ).get();
+        } catch ( ExecutionException ex ) {
+            return false;
+        }
+    }
+
+    /**
+     * Runs a campus from stdin. Each line is a building id followed by a 
+     * console command, eg "12 n3f10" or "12 f5u", and the reply is printed
+     * prefixed with the building id. A line of just "q" shuts the campus down.
+     */
+    public static void main( String[] args ) throws IOException, InterruptedException {
+        ElevatorCampus  campus = args.length > 0 ? new ElevatorCampus( Integer.parseInt( args[ 0 ] ) )
+                                                 : new ElevatorCampus();
+        BufferedReader  input = new BufferedReader( new InputStreamReader( System.in, StandardCharsets.UTF_8 ) );
+        String          line;
+
+        while ( ( line = input.readLine() ) != null ) {
+            line = line.trim();
+
+            if ( line.equals( "q" ) ) {
+                break;
+            }
+
+            int split = line.indexOf( ' ' );
+
+            try {
+                int     buildingId = Integer.parseInt( line.substring( 0, Math.max( 0, split ) ) );
+                String  reply = campus.command( buildingId, line.substring( split + 1 ).trim() ).get();
+
+                System.out.println( buildingId + ": " + reply );
+            } catch ( NumberFormatException ex ) {
+                System.out.println( "Unknown building: " + line );
+            } catch ( ExecutionException ex ) {
+                System.out.println( "Failed: " + line + " " + ex.getCause() );
+            }
+        }
+
+        campus.shutdown( 60000 );
+        System.out.print( "ElevatorCampus Offline.\n" );
+        System.out.flush();
+    }
+}
@@ -0,0 +1,137 @@
+/*
+ * Copyright (C) 2017 glbrimhall.com
+ *
+ * This file is part of an Elevator Simulator program written in java.
+ *
+ * Elevator Simulator program is free software: you can redistribute it and/or 
+ * modify it under the terms of the GNU General Public License as published
+ * by the Free Software Foundation, version 3 of the License.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.glbrimhall.elevator;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * ElevatorMetrics times the requests of a single elevator. A hall call is
+ * timed from {@link ElevatorSystem#floorRequest(int, Movement)} until the 
+ * elevator arrives for it, its wait time, and a button pressed in the elevator
+ * from {@link Elevator#buttonPressed(int)} until it arrives at that floor, 
+ * its journey time. The first press of a floor and direction starts the timer,
+ * and the arrival of {@link ElevatorQueue#moveFloor()} stops it. Both are 
+ * recorded in the elevator's own {@link LatencyHistogram} and the building's.
+ */
+public class ElevatorMetrics {
+    protected AtomicLongArray       hallCalls = null;
+    protected AtomicLongArray       carCalls = null;
+    protected int                   maxFloors;
+    protected LatencyHistogram      waitTimes = null;
+    protected LatencyHistogram      journeyTimes = null;
+    protected LatencyHistogram      buildingWaitTimes = null;
+    protected LatencyHistogram      buildingJourneyTimes = null;
+
+    /** 
+     * @param maxFloors the top floor that is timed
+     */
+    public ElevatorMetrics( int maxFloors ) {
+        this( maxFloors, null, null );
+    }
+
+    /** 
+     * @param maxFloors the top floor that is timed
+     * @param buildingWaitTimes the building's wait times, or null
+     * @param buildingJourneyTimes the building's journey times, or null
+     */
+    public ElevatorMetrics( int maxFloors, LatencyHistogram buildingWaitTimes, 
+                            LatencyHistogram buildingJourneyTimes ) {
+        this.maxFloors = Math.max( 0, maxFloors );
+        this.hallCalls = new AtomicLongArray( 2 * ( this.maxFloors + 1 ) );
+        this.carCalls = new AtomicLongArray( 2 * ( this.maxFloors + 1 ) );
+        this.waitTimes = new LatencyHistogram();
+        this.journeyTimes = new LatencyHistogram();
+        this.buildingWaitTimes = buildingWaitTimes;
+        this.buildingJourneyTimes = buildingJourneyTimes;
+    }
+
+    /** 
+     * Returns the elevator's hall call wait times.
+     */
+    public LatencyHistogram getWaitTimes() { return waitTimes; }
+
+    /** 
+     * Returns the elevator's journey times.
+     */
+    public LatencyHistogram getJourneyTimes() { return journeyTimes; }
+
+    /** 
+     * Starts timing a hall call assigned to the elevator.
+     * 
+     * @return false if the elevator was already called there, so the call
+     *         joins the one being timed
+     */
+    public boolean hallCalled( FloorRequest request, long nowMillis ) {
+        return start( hallCalls, request.floor, request.direction, nowMillis );
+    }
+
+    /** 
+     * Starts timing a floor button pressed within the elevator.
+     */
+    public void carCalled( int floor, Movement direction, long nowMillis ) {
+        start( carCalls, floor, direction, nowMillis );
+    }
+
+    /** 
+     * Stops the timers of the request the elevator arrived for.
+     */
+    public void arrived( FloorRequest request, long nowMillis ) {
+        int slot = slot( request.floor, request.direction );
+
+        if ( slot < 0 ) {
+            return;
+        }
+
+        long called = hallCalls.getAndSet( slot, 0 );
+
+        if ( called != 0 ) {
+            record( waitTimes, buildingWaitTimes, nowMillis - ( called - 1 ) );
+        }
+
+        called = carCalls.getAndSet( slot, 0 );
+
+        if ( called != 0 ) {
+            record( journeyTimes, buildingJourneyTimes, nowMillis - ( called - 1 ) );
+        }
+    }
+
+    protected boolean start( AtomicLongArray calls, int floor, Movement direction, long nowMillis ) {
+        int slot = slot( floor, direction );
+
+        // Stored plus one, so zero means not called.
+        return slot >= 0 && calls.compareAndSet( slot, 0, nowMillis + 1 );
+    }
+
+    protected static void record( LatencyHistogram elevator, LatencyHistogram building, long millis ) {
+        elevator.record( millis );
+
+        if ( building != null ) {
+            building.record( millis );
+        }
+    }
+
+    /** 
+     * Maps a floor and direction to it's timer, floor 0 is always UP.
+     */
+    protected int slot( int floor, Movement direction ) {
+        if ( floor < 0 || floor > maxFloors ) {
+            return -1;
+        }
+        return 2 * floor + ( direction == Movement.DOWN && floor != 0 ? 1 : 0 );
+    }
+}
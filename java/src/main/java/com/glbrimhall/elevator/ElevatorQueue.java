@@ -21,37 +21,72 @@ import java.util.ArrayList;
 import java.util.List;
 import java.util.TreeSet;
 import java.util.Iterator;
+import java.util.function.BooleanSupplier;
 
 /**
  * ElevatorQueue contains the ordered queue of {@link FloorRequest}. It is designed
- * so that a forward iterator represents the current floor position and direction, 
- * once the end of the queue is reached it goes back to the beginning which 
- * will contain the floors to move down to. What makes this work is the ordering
+ * so that the request being serviced represents the current floor position and 
+ * direction, and the next stop is the first request at or after it. Once the
+ * end of the queue is reached it goes back to the beginning which will contain 
+ * the floors to move down to. What makes this work is the ordering
  * implemented in {@link FloorRequest}
  */
 public class ElevatorQueue {
     protected TreeSet< FloorRequest >   requestedFloors = null;
-    protected FloorRequest              servicing = null;
-    protected Iterator< FloorRequest >  moveFloor = null;
-    protected static final FloorRequest zeroFloor = new FloorRequest( 0, Movement.UP );
+    protected volatile FloorRequest     servicing = null;
+    protected Runnable                  wakeup = null;
+    protected Runnable                  changed = null;
+    protected FloorRequestTable         floorRequests = null;
+    protected DispatchIndex             dispatchIndex = null;
+    protected int                       dispatchSlot;
+    protected volatile long             version;
+    protected Journal                   journal = null;
+    protected FlightRecorder            recorder = null;
+    protected int                       elevatorNumber;
+    protected static final FloorRequest zeroFloor = FloorRequest.ZERO_FLOOR;
     
     public ElevatorQueue() 
+    {
+        this( new FloorRequestTable( 0 ) );
+    }
+
+    /** 
+     * @param floorRequests the building's shared {@link FloorRequestTable}
+     */
+    public ElevatorQueue( FloorRequestTable floorRequests ) 
     {
         this.requestedFloors = new TreeSet< FloorRequest >();
-        this.moveFloor = this.requestedFloors.iterator();
-        this.servicing = new FloorRequest( 0, Movement.UP );
-        this.servicing.copy( zeroFloor );
+        this.floorRequests = floorRequests;
+        this.servicing = zeroFloor;
     }
     
     /** 
-     * Returns the FloorRequest being serviced within the queue.
+     * Returns the FloorRequest being serviced within the queue. It is 
+     * replaced, never modified, as the elevator moves so it can be read
+     * without the queue's lock.
      */
     public FloorRequest getServicing() { return servicing; }
 
+    /** 
+     * Returns the building's shared table of floor requests.
+     */
+    public FloorRequestTable getFloorRequests() { return floorRequests; }
+
+    /** 
+     * Returns a counter that changes each time the queue changes, so a 
+     * report can tell the queue is unchanged without locking it.
+     */
+    public long getVersion() { return version; }
+
     /** 
      * Returns the ElevatorQueue is empty or not
      */
     public synchronized boolean isEmpty() { return requestedFloors.isEmpty(); }
+
+    /** 
+     * Returns the number of floors in the ElevatorQueue
+     */
+    public synchronized int size() { return requestedFloors.size(); }
     
     /** 
      * Returns the highest floor the elevator will stop at.
@@ -90,35 +125,192 @@ public class ElevatorQueue {
      */
     public synchronized int getNextFloor()
     {
-        if ( requestedFloors.isEmpty() )
-            { return -1; }
-        
-        FloorRequest next = requestedFloors.higher( servicing );
+        FloorRequest next = nextStop();
         
+        if ( next == null ) 
+            { return -1; }
+
+        return next.floor;
+    }
+
+    /** 
+     * Returns the next stop: the first request at or after the one being 
+     * serviced, in the order of {@link FloorRequest}, wrapping back to the
+     * beginning once the top is reached. It is looked up from the current
+     * position and direction each time, so no iterator has to be kept in 
+     * step with the requests as they are added. Called with the queue's
+     * lock held.
+     * 
+     * @return the next stop, or null if the queue is empty
+     */
+    protected FloorRequest nextStop()
+    {
+        if ( requestedFloors.isEmpty() )
+            { return null; }
+
+        FloorRequest next = requestedFloors.ceiling( servicing );
+
         if ( next != null ) 
-            { return next.floor; }
+            { return next; }
         else
-            { return requestedFloors.first().floor; }
+            { return requestedFloors.first(); }
     }
 
     /** 
-     * Adds a FloorRequest to the ElevatorQueue
+     * Removes a stop returned by {@link #nextStop()}. Called with the 
+     * queue's lock held.
      */
-    public synchronized void addFloor( FloorRequest newFloor )
+    protected void removeStop( FloorRequest stop )
+    {
+        requestedFloors.remove( stop );
+    }
+
+    /** 
+     * Adds a FloorRequest to the ElevatorQueue. A request already queued
+     * is not recorded, journaled or published again.
+     * 
+     * @return boolean indicating whether the floor was added
+     */
+    public synchronized boolean addFloor( FloorRequest newFloor )
     {
         boolean waiting = requestedFloors.isEmpty();
 
-        requestedFloors.add( newFloor );
+        if ( ! requestedFloors.add( newFloor ) )
+            { return false; }
         
-        if ( ElevatorSystem.isDebugging() ) {
-            System.out.println( "Adding [" + newFloor.toString() + "]" );
+        if ( recorder != null ) {
+            recorder.record( FlightRecorder.ADD_FLOOR, elevatorNumber, newFloor, 0 );
         }
 
+        if ( journal != null ) {
+            journal.addFloor( elevatorNumber, newFloor );
+        }
+
+        publish();
+
         if ( waiting ) {
-            return;
+            wakeUp();
         }
+        return true;
+    }
+
+    /** 
+     * Adds a group of FloorRequests to the ElevatorQueue under one lock, 
+     * publishing the change and waking a waiting elevator once. Requests 
+     * already queued are skipped, same as {@link #addFloor(FloorRequest)}
+     * 
+     * @param requests the array holding the requests
+     * @param from the index of the first request
+     * @param to the index after the last request
+     * @return the number of requests added
+     */
+    public synchronized int addFloors( FloorRequest[] requests, int from, int to )
+    {
+        boolean waiting = requestedFloors.isEmpty();
+        int     added = 0;
+
+        for ( int i = from; i < to; ++i ) {
+            if ( ! requestedFloors.add( requests[ i ] ) )
+                { continue; }
+
+            ++added;
+        
+            if ( recorder != null ) {
+                recorder.record( FlightRecorder.ADD_FLOOR, elevatorNumber, requests[ i ], 0 );
+            }
+
+            if ( journal != null ) {
+                journal.addFloor( elevatorNumber, requests[ i ] );
+            }
+        }
+
+        if ( added == 0 )
+            { return 0; }
+
+        publish();
+
+        if ( waiting ) {
+            wakeUp();
+        }
+        return added;
+    }
+
+    /** 
+     * Adds a floor and direction to the ElevatorQueue
+     * 
+     * @return boolean indicating whether the floor was added
+     */
+    public boolean addFloor( int floor, Movement direction )
+    {
+        return addFloor( floorRequests.get( floor, direction ) );
+    }
+
+    /** 
+     * Parks the elevator if the queue is empty. The wakeup is run by the
+     * next {@link #addFloor(FloorRequest)}, while the queue's lock is held, 
+     * so it should only schedule the elevator to run.
+     * 
+     * @param wakeupEvent run once the queue is no longer empty
+     * @return true if the queue was empty and the elevator is parked,
+     *         false if there are floors to move to.
+     */
+    public synchronized boolean parkUntilNotEmpty( Runnable wakeupEvent )
+    {
+        if ( ! isEmpty() )
+            { return false; }
+
+        wakeup = wakeupEvent;
+        return true;
+    }
 
-        moveFloor = requestedFloors.tailSet( servicing ).iterator();
+    /** 
+     * Blocks the calling thread until the queue is not empty, the timeout
+     * passes or {@link #signalWaiters()} is called. {@link #addFloor(FloorRequest)}
+     * signals the waiting thread as soon as the first floor is added.
+     * An interrupt returns straight away, leaving the thread interrupted.
+     * 
+     * @param timeoutMillis the most milliseconds to wait, zero waits until
+     *                      signalled.
+     * @param done checked with the queue's lock held before waiting, so a
+     *             change signalled just before the wait is not missed.
+     * @return true if the queue is not empty
+     */
+    public synchronized boolean awaitNotEmpty( long timeoutMillis, BooleanSupplier done )
+    {
+        if ( isEmpty() && ! done.getAsBoolean() )
+        {
+            try {
+                wait( timeoutMillis );
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        return ! isEmpty();
+    }
+
+    /** 
+     * Wakes up any thread in {@link #awaitNotEmpty(long, BooleanSupplier)}, so it can check
+     * on a change that is not a new floor, such as going into maintenence.
+     */
+    public synchronized void signalWaiters()
+    {
+        notifyAll();
+    }
+
+    /** 
+     * Called with the queue's lock held once the first floor is added to an
+     * empty queue. It signals the thread in {@link #awaitNotEmpty(long, BooleanSupplier)}, and
+     * runs the wakeup of a parked elevator, if there is one.
+     */
+    protected void wakeUp()
+    {
+        notifyAll();
+
+        if ( wakeup != null ) {
+            Runnable parked = wakeup;
+            wakeup = null;
+            parked.run();
+        }
     }
 
     /** 
@@ -130,21 +322,125 @@ public class ElevatorQueue {
     }
 
     /** 
-     * Bumps to the next floor request within the queue.
+     * Bumps to the next floor request within the queue, see {@link #nextStop()}
      */
     public synchronized void moveFloor()
     {
-        if ( ! moveFloor.hasNext() )
-        {
-            // We are at the top of our floor, reset back to the bottom
-            moveFloor = requestedFloors.iterator();
+        FloorRequest next = nextStop();
+
+        if ( next == null )
+            { return; }
+
+        removeStop( next );
+        servicing = next;
+
+        if ( journal != null ) {
+            journal.moveFloor( elevatorNumber, next );
         }
 
-        if ( moveFloor.hasNext() )
-        {
-            servicing.copy( moveFloor.next() );
-            moveFloor.remove();
+        if ( recorder != null ) {
+            recorder.record( FlightRecorder.MOVE_FLOOR, elevatorNumber, next, 0 );
+        }
+
+        publish();
+    }
+
+    /** 
+     * Moves to a given stop, as replayed from a {@link Journal}, instead of
+     * looking up the next one.
+     */
+    public synchronized void moveFloor( FloorRequest stop )
+    {
+        if ( containsFloor( stop ) )
+            { removeStop( stop ); }
+
+        servicing = stop;
+
+        if ( journal != null ) {
+            journal.moveFloor( elevatorNumber, stop );
+        }
+
+        if ( recorder != null ) {
+            recorder.record( FlightRecorder.MOVE_FLOOR, elevatorNumber, stop, 0 );
         }
+
+        publish();
+    }
+
+    /** 
+     * Sets the {@link DispatchIndex} the queue publishes it's summary to.
+     * 
+     * @param index the system's dispatch index
+     * @param slot the zero based elevator number in the index
+     */
+    public synchronized void setDispatchIndex( DispatchIndex index, int slot )
+    {
+        dispatchIndex = index;
+        dispatchSlot = slot;
+        publish();
+    }
+
+    /** 
+     * Sets the {@link Journal} the queue's floors added and moved to are
+     * recorded in, or null for none.
+     * 
+     * @param new_value the system's journal
+     * @param elevator the elevator's number, see {@link Elevator#getIndex()}
+     */
+    public synchronized void setJournal( Journal new_value, int elevator )
+    {
+        journal = new_value;
+        elevatorNumber = elevator;
+    }
+
+    /** 
+     * Sets the {@link FlightRecorder} the queue's floors added and moved to 
+     * are recorded in, or null for none.
+     * 
+     * @param new_value the system's flight recorder
+     * @param elevator the elevator's number, see {@link Elevator#getIndex()}
+     */
+    public synchronized void setFlightRecorder( FlightRecorder new_value, int elevator )
+    {
+        recorder = new_value;
+        elevatorNumber = elevator;
+    }
+
+    /** 
+     * Sets a callback run with the queue's lock held after every change, 
+     * which the {@link Elevator} uses to publish it's {@link ElevatorSnapshot}.
+     */
+    public synchronized void setChangeListener( Runnable listener )
+    {
+        changed = listener;
+    }
+
+    /** 
+     * Publishes the queue's summary to the {@link DispatchIndex}, and bumps 
+     * it's version, which has to happen with the queue's lock held after 
+     * every change.
+     */
+    protected void publish()
+    {
+        ++version;
+
+        if ( changed != null )
+            { changed.run(); }
+
+        if ( dispatchIndex == null )
+            { return; }
+
+        dispatchIndex.publish( dispatchSlot, servicing, getLowestFloor(), 
+                               getHighestFloor(), size() );
+    }
+
+    /** 
+     * Returns a copy of the requests in the queue, in the order of
+     * {@link FloorRequest#compareTo(FloorRequest)}
+     */
+    public synchronized FloorRequest[] toArray()
+    {
+        return requestedFloors.toArray( new FloorRequest[ requestedFloors.size() ] );
     }
 
     /**
@@ -159,7 +455,7 @@ public class ElevatorQueue {
         // Elevator is stopped at a floor with doors open with no more floor
         // requests queued, just waiting for someone walk in or get a request
         // from another floor.
-        if ( requestedFloors.isEmpty() )
+        if ( isEmpty() )
             { return Math.abs( servicing.floor - request.floor ); }
         
         int distance = -1;
@@ -204,21 +500,30 @@ public class ElevatorQueue {
     /**
      * Returns a string representation of the queue.
      */
-    public synchronized String report() {
+    public String report() {
+        StringBuilder queue = new StringBuilder();
+        report( queue );
+        return queue.toString();
+    }
+
+    /**
+     * Appends the representation of the queue to a report. It walks the
+     * queue with {@link TreeSet#higher(Object)} instead of an iterator, so 
+     * nothing is allocated.
+     */
+    public synchronized void report( StringBuilder queue ) {
 
         if ( requestedFloors.isEmpty() ) {
-            return "[ ]";
+            queue.append( "[ ]" );
+            return;
         }
 
-        StringBuilder    queue = new StringBuilder();
         FloorRequest    last = null;
         
         queue.append( "[" );
 
-        Iterator< FloorRequest > floors = requestedFloors.iterator();
-        
-        while ( floors.hasNext() ) {
-            FloorRequest current = floors.next();
+        for ( FloorRequest current = requestedFloors.first(); current != null;
+              current = requestedFloors.higher( current ) ) {
             
             if ( last == null || last.direction != current.direction ) {
                 queue.append(" ");
@@ -234,7 +539,6 @@ public class ElevatorQueue {
             queue.append( current.floor );
         }
         queue.append( " ]" );
-        return queue.toString();
     }
 
     /**
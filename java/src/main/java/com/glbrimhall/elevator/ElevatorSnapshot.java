@@ -0,0 +1,171 @@
+/*
+ * Copyright (C) 2017 glbrimhall.com
+ *
+ * This file is part of an Elevator Simulator program written in java.
+ *
+ * Elevator Simulator program is free software: you can redistribute it and/or 
+ * modify it under the terms of the GNU General Public License as published
+ * by the Free Software Foundation, version 3 of the License.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.glbrimhall.elevator;
+
+/**
+ * ElevatorSnapshot is an immutable copy of an {@link Elevator}'s state: 
+ * it's floor, direction, whether it is moving or in maintenence, and the
+ * stops in it's queue. The elevator publishes a new snapshot after every
+ * change, so dashboards and dispatchers can read a consistent state
+ * through {@link Elevator#getSnapshot()} without taking any locks.
+ */
+public class ElevatorSnapshot {
+    protected final int             elevatorIndex;
+    protected final FloorRequest    servicing;
+    protected final boolean         moving;
+    protected final boolean         inMaintenence;
+    protected final FloorRequest[]  stops;
+    protected final long            version;
+
+    /** 
+     * @param elevatorIndex which elevator number the snapshot is of
+     * @param servicing the floor request being serviced
+     * @param moving whether the elevator is moving
+     * @param inMaintenence whether the elevator is in maintenence
+     * @param stops the requests in the queue, in the order of 
+     *              {@link FloorRequest#compareTo(FloorRequest)}. The snapshot
+     *              keeps the array, so it must not be changed afterwards.
+     * @param version the elevator's {@link Elevator#getStatusVersion()}
+     */
+    public ElevatorSnapshot( int elevatorIndex, FloorRequest servicing, boolean moving,
+                             boolean inMaintenence, FloorRequest[] stops, long version )
+    {
+        this.elevatorIndex = elevatorIndex;
+        this.servicing = servicing;
+        this.moving = moving;
+        this.inMaintenence = inMaintenence;
+        this.stops = stops;
+        this.version = version;
+    }
+
+    /** 
+     * Returns the assigned index of the elevator.
+     */
+    public int getIndex() { return elevatorIndex; }
+
+    /** 
+     * Returns the floor the elevator was at.
+     */
+    public int getCurrentFloor() { return servicing.floor; }
+
+    /** 
+     * Returns the direction the elevator was servicing, Movement.UP or Movement.DOWN
+     */
+    public Movement getCurrentDirection() { return servicing.direction; }
+
+    /** 
+     * Returns the floor request the elevator was servicing.
+     */
+    public FloorRequest getServicing() { return servicing; }
+
+    /** 
+     * Indicates whether the elevator was moving or stopped at a floor.
+     */
+    public boolean isMoving() { return moving; }
+
+    /** 
+     * Indicates if the elevator was in maintenence mode.
+     */
+    public boolean isInMaintenence() { return inMaintenence; }
+
+    /** 
+     * Indicates if the elevator was offline, ie in maintenence
+     * at ground zero with no one inside anymore.
+     */
+    public boolean isOffline() { return inMaintenence && stops.length == 0 
+                                        && 0 == servicing.floor; }
+
+    /** 
+     * Returns the number of stops queued.
+     */
+    public int getPendingStops() { return stops.length; }
+
+    /** 
+     * Returns the queued stop at a zero based position, in the queue's order.
+     */
+    public FloorRequest getStop( int index ) { return stops[ index ]; }
+
+    /** 
+     * Returns the elevator's status version the snapshot was taken at.
+     */
+    public long getVersion() { return version; }
+
+    /** 
+     * Generates a status string, same as {@link Elevator#reportStatus()}
+     */
+    @Override
+    public String toString() {
+        StringBuilder report = new StringBuilder();
+        report( report );
+        return report.toString();
+    }
+
+    /** 
+     * Appends the status of the elevator to a report, without allocating.
+     */
+    public void report( StringBuilder report )
+    {
+        report.append( "ELEVATOR[" );
+        Elevator.appendPadded( report, elevatorIndex, 2 );
+        report.append( "] at floor " );
+        Elevator.appendPadded( report, servicing.floor, 3 );
+        report.append( ' ' );
+        
+        if ( isOffline() )
+        {
+            report.append( "offline. " );
+        }
+        else
+        if ( moving )
+        {
+            report.append( "moving. " );
+        }
+        else
+        {
+            report.append( "waiting. " );
+        }
+
+        report.append( "QUEUE " );
+        
+        if ( stops.length == 0 ) {
+            report.append( "[ ]\n" );
+            return;
+        }
+
+        Movement    last = null;
+
+        report.append( "[" );
+
+        for ( FloorRequest current: stops ) {
+            
+            if ( last != current.direction ) {
+                report.append(" ");
+                report.append( current.direction.toString() );
+                report.append(":");
+                last = current.direction;
+            }
+            else {
+                report.append( "," );
+            }
+                
+            report.append( " " );
+            report.append( current.floor );
+        }
+        report.append( " ]\n" );
+    }
+}
@@ -17,10 +17,13 @@
  */
 package com.glbrimhall.elevator;
 
-import java.util.Collections;
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
-import java.util.LinkedList;
 import java.util.Scanner;
+import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
@@ -30,37 +33,214 @@ import java.util.logging.Logger;
  */
 public class ElevatorSystem {
 
-    protected static boolean                debug = false;
-    protected static int                    maxFloors = 0;
+    protected boolean                       debug = false;
+    protected int                           maxFloors = 0;
     protected List<Elevator>                elevatorList = null;
     protected int                           rotateElevator = 0;
     protected boolean                       running = true;
-    protected String                        lastReport = null;
+    protected StringBuilder                 statusReport = null;
+    protected byte[]                        statusBytes = null;
+    protected long[]                        reportedVersions = null;
     protected ParseList                     parser = null;
+    protected ISimulationClock              clock = null;
+    protected boolean                       threadPerElevator = true;
+    protected boolean                       bitSetQueue = false;
+    protected int                           doorOpenWaitSeconds = 0;
+    protected MotionModel                   motionModel = null;
+    protected FloorRequestTable             floorRequests = null;
+    protected DispatchIndex                 dispatchIndex = null;
+    protected IDispatchStrategy             dispatchStrategy = null;
+    protected LatencyHistogram              waitTimes = null;
+    protected LatencyHistogram              journeyTimes = null;
+    protected CommandServer                 server = null;
+    protected volatile Journal              journal = null;
+    protected MetricsRegistry               metricsRegistry = null;
+    protected FlightRecorder                flightRecorder = null;
+    protected DemandModel                   demandModel = null;
+    protected IParkingStrategy              parkingStrategy = null;
+    protected int                           snapshotSeconds = 0;
+    protected Thread                        snapshotThread = null;
 
     public ElevatorSystem()
     {
-        elevatorList = Collections.synchronizedList(new LinkedList< Elevator >() );
-        lastReport = new String();
+        elevatorList = new CopyOnWriteArrayList< Elevator >();
+        statusReport = new StringBuilder();
+        statusBytes = new byte[ 0 ];
         parser = new ParseList( this );
+        clock = new RealTimeClock();
+        floorRequests = new FloorRequestTable( 0 );
+        dispatchIndex = new DispatchIndex( 0 );
+        dispatchStrategy = new NearestCarDispatch();
+        waitTimes = new LatencyHistogram();
+        journeyTimes = new LatencyHistogram();
+        metricsRegistry = new MetricsRegistry( this );
+        flightRecorder = new FlightRecorder();
+        demandModel = new DemandModel( 0 );
     }
 
     /** 
-     * Indicates if the ElevatorSystem is elevator in debug mode, with more
-     * verbose debugging output.
+     * Indicates if the ElevatorSystem is elevator in debug mode, dumping
+     * the {@link FlightRecorder} when it shuts down.
      */
-    public static boolean isDebugging() { return debug; }
+    public boolean isDebugging() { return debug; }
+
+    /** 
+     * Turns dumping the {@link FlightRecorder} at shutdown on or off.
+     */
+    public void setDebugging( boolean new_value ) { debug = new_value; }
+
+    /** 
+     * Returns the {@link FlightRecorder} of the latest dispatch choices, 
+     * queue changes and door cycles, or null if it is turned off.
+     */
+    public FlightRecorder getFlightRecorder() { return flightRecorder; }
+
+    /** 
+     * Replaces the {@link FlightRecorder}, such as with one keeping more
+     * records, or null to turn it off.
+     * It needs to happen before {@link #initialize(int, int)} is called.
+     * 
+     * @return boolean indicating whether the setting was changed
+     */
+    public boolean setFlightRecorder( FlightRecorder new_value ) {
+        if ( isInitialized() ) {
+            return false;
+        }
+        flightRecorder = new_value;
+        return true;
+    }
 
     /** 
      * Returns the list of elevators being managed.
      */
     public List< Elevator > getElevatorList() { return elevatorList; }
     
+    /**
+     * Returns the latest {@link ElevatorSnapshot} of every elevator, in 
+     * elevator order, without taking any locks. Each snapshot is consistent 
+     * on it's own, they are not taken at the same instant.
+     */
+    public ElevatorSnapshot[] getSnapshots() {
+        ElevatorSnapshot[] snapshots = new ElevatorSnapshot[ elevatorList.size() ];
+
+        for( int i = 0; i < snapshots.length; ++i )
+            { snapshots[ i ] = elevatorList.get( i ).getSnapshot(); }
+
+        return snapshots;
+    }
+
+    /** 
+     * Returns the building's shared table of floor requests.
+     */
+    public FloorRequestTable getFloorRequests() { return floorRequests; }
+
+    /** 
+     * Returns the index of elevator summaries the dispatch strategies read.
+     */
+    public DispatchIndex getDispatchIndex() { return dispatchIndex; }
+
+    /** 
+     * Returns the building's hall call wait times, from the floor request
+     * until an elevator arrives for it.
+     */
+    public LatencyHistogram getWaitTimes() { return waitTimes; }
+
+    /** 
+     * Returns the building's journey times, from a floor button pressed 
+     * within an elevator until it arrives at that floor.
+     */
+    public LatencyHistogram getJourneyTimes() { return journeyTimes; }
+
+    /** 
+     * Returns the {@link MetricsRegistry} exposing the building's and 
+     * elevators' counters over JMX and http.
+     */
+    public MetricsRegistry getMetricsRegistry() { return metricsRegistry; }
+
+    /** 
+     * Returns the strategy choosing the elevator for each floor request.
+     */
+    public IDispatchStrategy getDispatchStrategy() { return dispatchStrategy; }
+
+    /** 
+     * Sets the strategy choosing the elevator for each floor request, 
+     * which can be changed while the elevators are running.
+     */
+    public void setDispatchStrategy( IDispatchStrategy strategy ) { dispatchStrategy = strategy; }
+
+    /** 
+     * Creates one of the built in dispatch strategies by name.
+     * 
+     * @param name nearest, zone, eta or destination
+     * @return the {@link IDispatchStrategy}, or null for an unknown name
+     */
+    public static IDispatchStrategy newDispatchStrategy( String name ) {
+        if ( name.equals( "nearest" ) ) { return new NearestCarDispatch(); }
+        if ( name.equals( "zone" ) ) { return new ZoneDispatch(); }
+        if ( name.equals( "eta" ) ) { return new EtaDispatch(); }
+        if ( name.equals( "destination" ) ) { return new DestinationDispatch(); }
+        return null;
+    }
+
+    /** 
+     * Returns the {@link DemandModel} learned from the hall calls.
+     */
+    public DemandModel getDemandModel() { return demandModel; }
+
+    /** 
+     * Returns the strategy choosing where idle elevators wait, or null.
+     */
+    public IParkingStrategy getParkingStrategy() { return parkingStrategy; }
+
+    /** 
+     * Sets the strategy choosing where idle elevators wait, or null for 
+     * them to wait where they last stopped, which can be changed while 
+     * the elevators are running.
+     */
+    public void setParkingStrategy( IParkingStrategy strategy ) {
+        parkingStrategy = strategy;
+
+        for( Elevator elevator: elevatorList ) {
+            elevator.setParkingStrategy( strategy );
+        }
+    }
+
+    /** 
+     * Creates one of the built in parking strategies by name, for this system.
+     * 
+     * @param name predictive
+     * @return the {@link IParkingStrategy}, or null for an unknown name
+     */
+    public IParkingStrategy newParkingStrategy( String name ) {
+        if ( name.equals( "predictive" ) ) { return new PredictiveParking( this ); }
+        return null;
+    }
+
     /** 
      * Returns the user input parser.
      */
     public ParseList getParser() { return parser; }
 
+    /** 
+     * Returns the clock the elevators run on.
+     */
+    public ISimulationClock getClock() { return clock; }
+
+    /** 
+     * Sets the clock the elevators run on, which needs to happen before
+     * {@link #initialize(int, int)} is called.
+     * 
+     * @param newClock the {@link RealTimeClock} or {@link VirtualClock}
+     * @return boolean indicating whether the clock was changed
+     */
+    public boolean setClock( ISimulationClock newClock ) {
+        if ( isInitialized() ) {
+            return false;
+        }
+        clock = newClock;
+        return true;
+    }
+
     /** 
      * Indicates the {@link #initialize(int, int)} method has been called.
      */
@@ -86,31 +266,363 @@ public class ElevatorSystem {
         return online;
     }
 
+    /** 
+     * Indicates each elevator runs in it's own thread, instead of as events 
+     * on the clock's shared scheduler.
+     */
+    public boolean isThreadPerElevator() { return threadPerElevator; }
+
+    /** 
+     * Chooses between running each elevator in it's own thread, or as events
+     * on the clock's small shared pool, where idle elevators cost no cpu.
+     * It needs to happen before {@link #initialize(int, int)} is called, and 
+     * is ignored by a {@link VirtualClock} which is always event driven.
+     * 
+     * @param new_value true for a thread per elevator
+     * @return boolean indicating whether the setting was changed
+     */
+    public boolean setThreadPerElevator( boolean new_value ) {
+        if ( isInitialized() ) {
+            return false;
+        }
+        threadPerElevator = new_value;
+        return true;
+    }
+
+    /** 
+     * Indicates the elevators queue their floors in a {@link BitSetElevatorQueue}
+     * instead of the TreeSet backed {@link ElevatorQueue}.
+     */
+    public boolean isBitSetQueue() { return bitSetQueue; }
+
+    /** 
+     * Chooses the {@link BitSetElevatorQueue}, which does not allocate as 
+     * floors are requested, over the TreeSet backed {@link ElevatorQueue}.
+     * It needs to happen before {@link #initialize(int, int)} is called.
+     * 
+     * @param new_value true for the BitSetElevatorQueue
+     * @return boolean indicating whether the setting was changed
+     */
+    public boolean setBitSetQueue( boolean new_value ) {
+        if ( isInitialized() ) {
+            return false;
+        }
+        bitSetQueue = new_value;
+        return true;
+    }
+
+    /** 
+     * Returns the seconds the elevators keep their doors open at a floor,
+     * or 0 for the elevator's default.
+     */
+    public int getDoorOpenWaitSeconds() { return doorOpenWaitSeconds; }
+
+    /** 
+     * Sets the seconds the elevators keep their doors open at a floor.
+     * It needs to happen before {@link #initialize(int, int)} is called.
+     * 
+     * @param new_value the seconds, at least 1
+     * @return boolean indicating whether the setting was changed
+     */
+    public boolean setDoorOpenWaitSeconds( int new_value ) {
+        if ( isInitialized() || new_value < 1 ) {
+            return false;
+        }
+        doorOpenWaitSeconds = new_value;
+        return true;
+    }
+
+    /** 
+     * Returns the {@link MotionModel} the elevators are created with, or null
+     * if they move between floors instantly.
+     */
+    public MotionModel getMotionModel() { return motionModel; }
+
+    /** 
+     * Sets the {@link MotionModel} the elevators are created with, which 
+     * then times their doors instead of {@link #setDoorOpenWaitSeconds(int)}
+     * Each elevator's model can still be changed after with 
+     * {@link Elevator#setMotionModel(MotionModel)}
+     * It needs to happen before {@link #initialize(int, int)} is called.
+     * 
+     * @return boolean indicating whether the setting was changed
+     */
+    public boolean setMotionModel( MotionModel new_value ) {
+        if ( isInitialized() ) {
+            return false;
+        }
+        motionModel = new_value;
+        return true;
+    }
+
+    /** 
+     * Creates the queue for a new elevator, as chosen by {@link #setBitSetQueue(boolean)}
+     */
+    protected ElevatorQueue newElevatorQueue() {
+        return bitSetQueue ? new BitSetElevatorQueue( floorRequests )
+                           : new ElevatorQueue( floorRequests );
+    }
+
     /** 
      * Indicates if the elevator is initialized minimally with a number of
      * elevators and the top floor number allowed by all the elevators.
+     * It does nothing once the elevators are initialized, such as after
+     * they are restored from a {@link Journal}
      * 
      * @param numElevators indicate how many elevators to manage
      * @param numFloors the total floors serviced by all the elevators.
      */
-    public void initialize( int numElevators, int numFloors ) {
+    public synchronized void initialize( int numElevators, int numFloors ) {
+        if ( isInitialized() ) {
+            return;
+        }
+
+        createElevators( numElevators, numFloors );
+
+        if ( journal != null ) {
+            journal.initialized( elevatorList.size(), numFloors );
+        }
+
+        startElevators();
+    }
+
+    /** 
+     * Creates the elevators without starting them, so their state can be
+     * restored first.
+     */
+    protected void createElevators( int numElevators, int numFloors ) {
         maxFloors = numFloors;
+        floorRequests = new FloorRequestTable( numFloors );
+        demandModel = new DemandModel( numFloors );
 
         // Create the elevator objects
         if ( numElevators <= 0 ) { numElevators = 1; }
         
         int elevatorNumber = 1;
+        List< Elevator > created = new ArrayList< Elevator >( numElevators );
         
         while ( numElevators > 0 )
         {
-            elevatorList.add( new Elevator( elevatorNumber ) );
+            created.add( new Elevator( elevatorNumber, clock, ! threadPerElevator,
+                                       newElevatorQueue() ) );
             --numElevators;
             ++elevatorNumber;
         }
-        
+
+        // Added all at once, as each add copies the list.
+        elevatorList.addAll( created );
+
+        dispatchIndex = new DispatchIndex( elevatorList.size() );
+
+        for( Elevator elevator: elevatorList ) {
+            elevator.setDispatchIndex( dispatchIndex );
+            elevator.setMetrics( new ElevatorMetrics( numFloors, waitTimes, journeyTimes ) );
+
+            if ( doorOpenWaitSeconds > 0 ) {
+                elevator.setDoorOpenWaitSeconds( doorOpenWaitSeconds );
+            }
+
+            elevator.setMotionModel( motionModel );
+            elevator.setParkingStrategy( parkingStrategy );
+        }
+    }
+
+    /** 
+     * Starts the created elevators, recording their changes in the 
+     * {@link Journal} and {@link FlightRecorder} if there are any.
+     */
+    protected void startElevators() {
+        if ( flightRecorder != null ) {
+            flightRecorder.setClock( clock );
+        }
+
+        for( Elevator elevator: elevatorList ) {
+            elevator.setJournal( journal );
+            elevator.setFlightRecorder( flightRecorder );
+            elevator.start();
+        }
+
+        metricsRegistry.registerElevators();
+    }
+
+    /** 
+     * Returns the {@link Journal} the system is recorded in, or null.
+     */
+    public Journal getJournal() { return journal; }
+
+    /** 
+     * Opens a {@link Journal} to record the commands and elevator changes in.
+     * If it already has records the elevators are restored from them and
+     * started, so it needs to happen before {@link #initialize(int, int)} 
+     * is called. 
+     * 
+     * @param file the journal file, created if it does not exist
+     * @return boolean indicating whether the journal was opened
+     * @throws IOException if the file could not be opened or is not a journal
+     */
+    public synchronized boolean openJournal( File file ) throws IOException {
+        if ( isInitialized() || journal != null ) {
+            return false;
+        }
+
+        Journal         opened = new Journal( file );
+        SystemSnapshot  snapshot = new SystemSnapshot( getSnapshotFile( file ) );
+        int[]           cuts = null;
+
+        try {
+            if ( snapshot.getFile().exists() ) {
+                snapshot.load( this );
+                cuts = snapshot.getJournalCuts();
+            }
+        } catch ( IOException ex ) {
+            opened.close();
+            throw ex;
+        }
+
+        JournalRestore  restore = new JournalRestore( this );
+
+        opened.replay( restore, cuts );
+        restore.finish();
+        opened.start();
+        journal = opened;
+
+        // Cut again at the end of the journal, which also covers a journal
+        // that was cut short of the snapshot.
+        if ( cuts != null ) {
+            saveSnapshot( snapshot.getFile() );
+        }
+
+        if ( isInitialized() ) {
+            startElevators();
+        }
+
+        startSnapshots();
+        return true;
+    }
+
+    /** 
+     * Returns the file the {@link SystemSnapshot} of a journal is kept in, 
+     * beside the journal.
+     */
+    public static File getSnapshotFile( File journalFile ) {
+        return new File( journalFile.getPath() + ".snapshot" );
+    }
+
+    /** 
+     * Returns the seconds between the snapshots saved beside the journal, 
+     * or 0 if none are saved.
+     */
+    public int getSnapshotSeconds() { return snapshotSeconds; }
+
+    /** 
+     * Sets the seconds between the {@link SystemSnapshot} saved beside the 
+     * {@link Journal}, on the wall clock. The journal is replayed from the 
+     * last snapshot when it is opened, and a last one is saved as it closes.
+     * 
+     * @param new_value the seconds, 0 for no snapshots
+     * @return boolean indicating whether the setting was changed
+     */
+    public synchronized boolean setSnapshotSeconds( int new_value ) {
+        if ( new_value < 0 || snapshotThread != null ) {
+            return false;
+        }
+        snapshotSeconds = new_value;
+        startSnapshots();
+        return true;
+    }
+
+    /** 
+     * Starts the thread saving the snapshots, once there is a journal and
+     * the seconds between them are set.
+     */
+    protected synchronized void startSnapshots() {
+        if ( journal == null || snapshotSeconds <= 0 || snapshotThread != null ) {
+            return;
+        }
+
+        final File  file = getSnapshotFile( journal.getFile() );
+        final long  periodMillis = 1000L * snapshotSeconds;
+
+        snapshotThread = new Thread( () -> {
+            while ( ! Thread.currentThread().isInterrupted() ) {
+                try {
+                    Thread.sleep( periodMillis );
+                } catch ( InterruptedException ex ) {
+                    return;
+                }
+                saveSnapshot( file );
+            }
+        }, "Snapshot" );
+        snapshotThread.setDaemon( true );
+        snapshotThread.start();
+    }
+
+    /** 
+     * Saves a {@link SystemSnapshot} of the elevators while they run.
+     * 
+     * @param file the snapshot file
+     * @return boolean indicating whether the snapshot was saved
+     */
+    public boolean saveSnapshot( File file ) {
+        if ( ! isInitialized() ) {
+            return false;
+        }
+
+        try {
+            new SystemSnapshot( file ).save( this );
+            return true;
+        } catch ( IOException ex ) {
+            Logger.getLogger( getClass().getName() ).log( Level.SEVERE, "Could not save snapshot " + file, ex );
+            return false;
+        }
+    }
+
+    /** 
+     * Restores the elevators from a {@link SystemSnapshot} and starts them,
+     * instead of {@link #initialize(int, int)}. To also replay what happened
+     * after it, open the {@link Journal} instead.
+     * 
+     * @param file the snapshot file
+     * @return boolean indicating whether the elevators were restored, false 
+     *         if they are already initialized
+     * @throws IOException if the file could not be read or is not a snapshot
+     */
+    public synchronized boolean restoreSnapshot( File file ) throws IOException {
+        if ( isInitialized() ) {
+            return false;
+        }
+
+        new SystemSnapshot( file ).load( this );
+        startElevators();
+        return true;
+    }
+
+    /** 
+     * Writes out and closes the {@link Journal}, if there is one.
+     */
+    public synchronized void closeJournal() {
+        if ( journal == null ) {
+            return;
+        }
+
+        if ( snapshotThread != null ) {
+            snapshotThread.interrupt();
+
+            try {
+                snapshotThread.join();
+            } catch ( InterruptedException ex ) {
+                Thread.currentThread().interrupt();
+            }
+            snapshotThread = null;
+            saveSnapshot( getSnapshotFile( journal.getFile() ) );
+        }
+
         for( Elevator elevator: elevatorList ) {
-            elevator.getThread().start();
+            elevator.setJournal( null );
         }
+
+        journal.close();
+        journal = null;
     }
 
     /** 
@@ -129,7 +641,7 @@ public class ElevatorSystem {
     /** 
      * Returns the total number of floors serviced by the ElevatorSystem.
      */
-    public static int getMaxFloors() { return maxFloors; }
+    public int getMaxFloors() { return maxFloors; }
 
     /** 
      * Picks a "random" elevator when there is not a better weighted choice.
@@ -157,7 +669,8 @@ public class ElevatorSystem {
     
     /** 
      * Helper function that puts the calling thread to sleep for a desired 
-     * number of seconds.
+     * number of seconds. An interrupted sleep returns early, leaving the 
+     * thread interrupted.
      * 
      * @param className is the calling getClass().getName() if an exception
      * needs to get thrown.
@@ -170,10 +683,32 @@ public class ElevatorSystem {
             Thread.sleep( 1000 * seconds );
         } catch (InterruptedException ex) {
             Logger.getLogger(className).log(Level.SEVERE, null, ex);
+            Thread.currentThread().interrupt();
         }
        return 0;
     }
 
+    /** 
+     * Starts a {@link CommandServer} serving commands on a localhost socket.
+     * 
+     * @param port the port to listen on, 0 picks a free port
+     * @return the port listened on, or -1 if the system is already listening
+     * @throws IOException if the port could not be opened
+     */
+    public synchronized int listen( int port ) throws IOException {
+        if ( server != null ) {
+            return -1;
+        }
+        server = new CommandServer( this, port );
+        server.start();
+        return server.getPort();
+    }
+
+    /** 
+     * Returns the {@link CommandServer} started by {@link #listen(int)}, or null.
+     */
+    public CommandServer getServer() { return server; }
+
     /** 
      * Waits on all started threads to shutdown, closes down the input
      */
@@ -181,10 +716,23 @@ public class ElevatorSystem {
     {
        try {
            for( Elevator elevator: elevatorList ) {
-                elevator.getThread().join();
+                if ( elevator.getThread() != null ) {
+                    elevator.getThread().join();
+                }
 
            parser.stop();
            }
+
+           if ( server != null ) {
+               server.stop();
+           }
+
+           closeJournal();
+           metricsRegistry.stop();
+
+           if ( debug ) {
+               reportTrace();
+           }
         } catch (InterruptedException ex) {
             Logger.getLogger( getClass().getName() ).log( Level.SEVERE, null, ex );
         }
@@ -202,72 +750,360 @@ public class ElevatorSystem {
      */
    public int floorRequest( int floor, Movement direction )
    {
-       if ( ! running ) {
-           return -1;
+       return dispatchRequest( floorRequests.get( floor, direction ), -1 );
+   }
+
+   /**
+     * This method assigns an external floor request from a destination panel,
+     * where the passenger enters the floor they are going to, to an elevator.
+     * The elevator queues both the request and the destination.
+     * 
+     * @param floor the floor the request came from
+     * @param destination the floor the passenger is going to
+     * @return which elevator took the request, or -1 if no elevator took it.
+     */
+   public int destinationRequest( int floor, int destination )
+   {
+       if ( destination == floor ) {
+           return floorRequest( floor, Movement.UP );
        }
 
-       FloorRequest request = new FloorRequest( floor, direction );
-       
-       // Current implementation of requestDistance will always return a value
-       // less than 2 * maxFloors.
-       int       distance = ElevatorSystem.getMaxFloors() * 2;
+       Movement direction = destination > floor ? Movement.UP : Movement.DOWN;
+
+       return dispatchRequest( floorRequests.get( floor, direction ), destination );
+   }
 
+   /**
+     * Picks the elevator for a request with the {@link IDispatchStrategy}, 
+     * falling back to the next elevator in turn.
+     * 
+     * @param request the floor and direction of the request
+     * @param destination the floor the passenger is going to, or -1 if unknown
+     * @return the zero based elevator number
+     */
+   protected int selectElevator( FloorRequest request, int destination )
+   {
        // This is cheating cause it's using knowledge of
        // internal implementation of randomElevator():
        int       which_elevator = rotateElevator;
-       Elevator  selected_elevator = randomElevator();
+
+       randomElevator();
        
-       // Find the elevator which is closest in distance. Note this may
-       // pick an elevator which did not have the floor assigned over one
-       // that already did have the floor assigned because of how the distance
-       // is calculated.
-       for( int i = 0; i < elevatorList.size(); ++i )
-       {
-           Elevator elevator = elevatorList.get(i);
-           
-           if ( ! elevator.isInMaintenence() )
-           {
-               int elevator_distance = elevator.requestDistance( request );
-
-               if ( elevator_distance < distance )
-               {
-                   distance = elevator_distance;
-                   selected_elevator = elevator;
-                   which_elevator = i;
+       // The strategy chooses from each elevator's published summary in the
+       // DispatchIndex, without locking every queue.
+       long      started = System.nanoTime();
+       int       selected = dispatchStrategy.selectElevator( this, request, destination );
+
+       long      nanos = System.nanoTime() - started;
+
+       metricsRegistry.dispatched( nanos );
+
+       if ( selected < 0 ) {
+           selected = which_elevator;
+       }
+
+       if ( flightRecorder != null ) {
+           recordDispatch( request, selected, nanos );
+       }
+       return selected;
+   }
+
+   /**
+     * Records a dispatch in the {@link FlightRecorder}, with each candidate's
+     * distance from the request as read from the {@link DispatchIndex} by
+     * the strategy, for buildings of up to FlightRecorder.MAX_CANDIDATES.
+     */
+   protected void recordDispatch( FloorRequest request, int selected, long nanos )
+   {
+       DispatchIndex index = dispatchIndex;
+
+       if ( index.size() <= FlightRecorder.MAX_CANDIDATES ) {
+           for ( int slot = 0; slot < index.size(); ++slot ) {
+               long summary = index.getSummary( slot );
+
+               if ( ! DispatchIndex.isInMaintenence( summary ) ) {
+                   flightRecorder.record( FlightRecorder.CANDIDATE, slot + 1, request, 
+                                          DispatchIndex.distance( summary, request ) );
                }
            }
        }
+       flightRecorder.record( FlightRecorder.DISPATCH, selected + 1, request, nanos );
+   }
+
+   /**
+     * Assigns a request to the elevator chosen by the {@link IDispatchStrategy}.
+     * 
+     * @param request the floor and direction of the request
+     * @param destination the floor the passenger is going to, or -1 if unknown
+     * @return which elevator took the request, or -1 if no elevator took it.
+     */
+   protected int dispatchRequest( FloorRequest request, int destination )
+   {
+       if ( ! running ) {
+           return -1;
+       }
+
+       int       which_elevator = selectElevator( request, destination );
+       Elevator  selected_elevator = elevatorList.get( which_elevator );
+       long      now = clock.currentMillis();
 
+       // Timed from before it is queued, so the arrival can't be missed.
+       // Only a call that isn't already waiting is new demand, same as a 
+       // hall button that is already lit.
+       if ( selected_elevator.getMetrics().hallCalled( request, now ) ) {
+           demandModel.hallCalled( request, now );
+       }
        selected_elevator.getQueue().addFloor( request );
+
+       if ( destination >= 0 )
+       {
+           selected_elevator.getMetrics().carCalled( destination, request.direction, now );
+           selected_elevator.getQueue().addFloor( destination, request.direction );
+       }
        
        return which_elevator;
    }
 
    /**
-    * Reports the status of the elevator system, currently to stdout
+    * Reports the status of the elevators that changed since the last report, 
+    * currently to stdout. Nothing is printed when nothing changed.
     */
    public void reportStatus() {
-       
-       StringBuffer report = new StringBuffer();
+       reportStatus( false );
+   }
+
+   /**
+    * Reports the status of the elevator system, currently to stdout. Each
+    * elevator's {@link ElevatorSnapshot#getVersion()} is compared with the
+    * last one reported, and only the changed elevators are written into a
+    * reused buffer, so an unchanged system costs no allocation. Reading the
+    * snapshots takes no locks, so reporting never holds up an elevator.
+    * 
+    * @param full true to report every elevator, changed or not
+    */
+   public synchronized void reportStatus( boolean full ) {
+
+       statusReport.setLength( 0 );
 
        if ( ! isInitialized() ) {
-           report.append( "ElevatorSystem not initialized.\n" );
+           if ( full || reportedVersions == null ) {
+               statusReport.append( "ElevatorSystem not initialized.\n" );
+               reportedVersions = new long[ 0 ];
+           }
        }
        else {
-           for( int i = 0; i < elevatorList.size(); ++i ) {
-               report.append( elevatorList.get( i ).reportStatus() );
+           if ( reportedVersions == null || reportedVersions.length != elevatorList.size() ) {
+               reportedVersions = new long[ elevatorList.size() ];
+               full = true;
+           }
+
+           for( int i = 0; i < reportedVersions.length; ++i ) {
+               ElevatorSnapshot snapshot = elevatorList.get( i ).getSnapshot();
+
+               if ( full || snapshot.getVersion() != reportedVersions[ i ] ) {
+                   reportedVersions[ i ] = snapshot.getVersion();
+                   snapshot.report( statusReport );
+               }
            }
-           //report.append( ElevatorQueue.reportQueuqes( elevatorList, 3) );
        }
        
-       String currentReport = report.toString();
-       
-       if ( ! currentReport.equals( lastReport ) ) {
-           System.out.print( currentReport.toString() );
-           lastReport = currentReport;
+       if ( statusReport.length() == 0 ) {
+           return;
        }
+
+       if ( statusBytes.length < statusReport.length() ) {
+           statusBytes = new byte[ 2 * statusReport.length() ];
+       }
+
+       // The report is ascii, copied as is to avoid creating a String.
+       for ( int i = 0; i < statusReport.length(); ++i ) {
+           statusBytes[ i ] = (byte) statusReport.charAt( i );
+       }
+       System.out.write( statusBytes, 0, statusReport.length() );
+       System.out.flush();
    }
    
+   /**
+    * Reports the wait and journey times of the building and each elevator, 
+    * currently to stdout
+    */
+   public void reportMetrics() {
+       StringBuilder report = new StringBuilder();
+
+       report.append( "BUILDING     wait    " ).append( waitTimes.report() ).append( "\n" );
+       report.append( "BUILDING     journey " ).append( journeyTimes.report() ).append( "\n" );
+
+       for( Elevator elevator: elevatorList ) {
+           ElevatorMetrics metrics = elevator.getMetrics();
+
+           report.append( String.format( "ELEVATOR[%2d] wait    ", elevator.getIndex() ) )
+                 .append( metrics.getWaitTimes().report() ).append( "\n" );
+           report.append( String.format( "ELEVATOR[%2d] journey ", elevator.getIndex() ) )
+                 .append( metrics.getJourneyTimes().report() ).append( "\n" );
+       }
+       System.out.print( report.toString() );
+   }
+
+   /**
+    * Reports the flight recorder's latest dispatch choices, queue changes
+    * and door cycles, oldest first, currently to stdout
+    */
+   public void reportTrace() {
+       StringBuilder report = new StringBuilder();
+
+       if ( flightRecorder == null ) {
+           report.append( "The flight recorder is off.\n" );
+       }
+       else if ( flightRecorder.dump( report ) == 0 ) {
+           report.append( "The flight recorder is empty.\n" );
+       }
+       System.out.print( report.toString() );
+   }
+
+   /**
+    * Queues a batch of calls in one pass. Hall and destination calls are 
+    * dispatched one at a time, each seeing the stops given to the elevators
+    * earlier in the batch through {@link DispatchIndex#reserve(int, FloorRequest)},
+    * then the calls are grouped by elevator and each group is added 
+    * to it's elevator's queue under one lock, waking the elevator once.
+    * 
+    * @param batch the hall, car and destination calls
+    * @return the number of calls queued. Car calls to an elevator in 
+    *         maintenence or at the floor are dropped, same as 
+    *         {@link Elevator#buttonPressed(int)}, and hall calls are dropped
+    *         once the system is shut down.
+    */
+   public int submit( CommandBatch batch )
+   {
+       int              numElevators = elevatorList.size();
+       int              size = batch.size();
+
+       if ( numElevators == 0 || size == 0 ) {
+           return 0;
+       }
+
+       // A single call has nothing to group.
+       if ( size == 1 ) {
+           return submitCall( batch.getType( 0 ), batch.getFirst( 0 ), batch.getSecond( 0 ) );
+       }
+
+       int[]            cars = new int[ size ];
+       FloorRequest[]   stops = new FloorRequest[ 2 * size ];
+       int[]            starts = new int[ numElevators + 1 ];
+       int[]            carCalls = new int[ numElevators ];
+       long             now = clock.currentMillis();
+       int              queued = 0;
+
+       for ( int i = 0; i < size; ++i ) {
+           int          first = batch.getFirst( i );
+           int          second = batch.getSecond( i );
+           FloorRequest request = null;
+           FloorRequest destination = null;
+           Elevator     elevator = null;
+
+           if ( batch.getType( i ) == CommandBatch.CAR_CALL ) {
+               elevator = getElevator( first );
+               request = elevator.carRequest( second );
+
+               if ( request != null ) {
+                   elevator.getMetrics().carCalled( second, request.direction, now );
+                   ++carCalls[ elevator.getIndex() - 1 ];
+               }
+           }
+           else
+           if ( running ) {
+               int      destinationFloor = -1;
+               Movement direction = second == Movement.DOWN.ordinal() ? Movement.DOWN : Movement.UP;
+
+               // Same as destinationRequest(), a call to it's own floor is an UP call.
+               if ( batch.getType( i ) == CommandBatch.DESTINATION_CALL ) {
+                   direction = second < first ? Movement.DOWN : Movement.UP;
+                   destinationFloor = second == first ? -1 : second;
+               }
+
+               request = floorRequests.get( first, direction );
+               elevator = elevatorList.get( selectElevator( request, destinationFloor ) );
+
+               // The rest of the batch is dispatched seeing the stops this 
+               // elevator was given, before they are queued.
+               dispatchIndex.reserve( elevator.getIndex() - 1, request );
+               if ( elevator.getMetrics().hallCalled( request, now ) ) {
+                   demandModel.hallCalled( request, now );
+               }
+
+               if ( destinationFloor >= 0 ) {
+                   destination = floorRequests.get( destinationFloor, direction );
+                   dispatchIndex.reserve( elevator.getIndex() - 1, destination );
+                   elevator.getMetrics().carCalled( destinationFloor, direction, now );
+               }
+           }
+
+           if ( request == null ) {
+               cars[ i ] = -1;
+               continue;
+           }
+
+           cars[ i ] = elevator.getIndex() - 1;
+           stops[ 2 * i ] = request;
+           stops[ 2 * i + 1 ] = destination;
+           starts[ cars[ i ] + 1 ] += destination == null ? 1 : 2;
+           ++queued;
+       }
+
+       // Groups the stops by elevator, a counting sort keeping their order,
+       // with each elevator's car calls ahead of it's hall calls so only the
+       // car calls added are counted.
+       for ( int car = 0; car < numElevators; ++car ) {
+           starts[ car + 1 ] += starts[ car ];
+       }
+
+       FloorRequest[]   grouped = new FloorRequest[ starts[ numElevators ] ];
+       int[]            next = Arrays.copyOf( starts, numElevators );
+
+       for ( int pass = 0; pass < 2; ++pass ) {
+           for ( int i = 0; i < size; ++i ) {
+               if ( cars[ i ] < 0 || ( batch.getType( i ) == CommandBatch.CAR_CALL ) != ( pass == 0 ) ) {
+                   continue;
+               }
+               grouped[ next[ cars[ i ] ]++ ] = stops[ 2 * i ];
+
+               if ( stops[ 2 * i + 1 ] != null ) {
+                   grouped[ next[ cars[ i ] ]++ ] = stops[ 2 * i + 1 ];
+               }
+           }
+       }
+
+       for ( int car = 0; car < numElevators; ++car ) {
+           if ( starts[ car ] < starts[ car + 1 ] ) {
+               elevatorList.get( car ).addRequests( grouped, starts[ car ], starts[ car + 1 ], 
+                                                    carCalls[ car ] );
+           }
+       }
+       return queued;
+   }
+
+   /**
+    * Queues one call of a batch directly.
+    * 
+    * @return 1 if the call was queued, otherwise 0
+    */
+   protected int submitCall( byte type, int first, int second )
+   {
+       int queued;
+
+       if ( type == CommandBatch.CAR_CALL ) {
+           return getElevator( first ).buttonPressed( second ) ? 1 : 0;
+       }
+       else
+       if ( type == CommandBatch.DESTINATION_CALL ) {
+           queued = destinationRequest( first, second );
+       }
+       else {
+           queued = floorRequest( first, second == Movement.DOWN.ordinal() ? Movement.DOWN : Movement.UP );
+       }
+       return queued < 0 ? 0 : 1;
+   }
+
     /**
      * This puts an elevator at zero based index in maintenence.
      * @param whichElevator the elevator to put into maintenence
@@ -312,10 +1148,15 @@ public class ElevatorSystem {
 
        while( system.isRunning() ) {
            system.reportStatus();
-           ElevatorSystem.sleepSeconds( system.getClass().getName(), 1 );
+           system.getClock().sleepSeconds( system.getClass().getName(), 1 );
        }
        
        //system.waitToShutdown();
+       system.closeJournal();
+
+       if ( system.isDebugging() ) {
+           system.reportTrace();
+       }
        system.reportStatus();
        System.out.print( "ElevatorSystem Offline.\n" );
        System.out.flush();
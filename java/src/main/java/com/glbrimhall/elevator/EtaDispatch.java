@@ -0,0 +1,91 @@
+/*
+ * Copyright (C) 2017 glbrimhall.com
+ *
+ * This file is part of an Elevator Simulator program written in java.
+ *
+ * Elevator Simulator program is free software: you can redistribute it and/or 
+ * modify it under the terms of the GNU General Public License as published
+ * by the Free Software Foundation, version 3 of the License.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.glbrimhall.elevator;
+
+import java.util.List;
+
+/**
+ * EtaDispatch sends a floor request to the elevator that would arrive first,
+ * costing the travel plus a door cycle for each stop the elevator
+ * already has queued. An elevator with a {@link MotionModel} is costed by it,
+ * otherwise by a fixed time per floor. Counting every queued stop makes it an upper bound, 
+ * which steers requests away from busy elevators.
+ */
+public class EtaDispatch implements IDispatchStrategy {
+    protected long      floorTravelMillis;
+
+    public EtaDispatch() {
+        this( 2000 );
+    }
+
+    /** 
+     * @param floorTravelMillis the milliseconds an elevator without a
+     *                          {@link MotionModel} takes per floor
+     */
+    public EtaDispatch( long floorTravelMillis ) {
+        this.floorTravelMillis = floorTravelMillis;
+    }
+
+    @Override
+    public String getName() { return "eta"; }
+
+    @Override
+    public int selectElevator( ElevatorSystem system, FloorRequest request, int destination ) {
+        DispatchIndex   index = system.getDispatchIndex();
+        List< Elevator > elevators = system.getElevatorList();
+        long            best = Long.MAX_VALUE;
+        int             selected = -1;
+
+        for ( int i = 0; i < index.size(); ++i ) {
+            long summary = index.getSummary( i );
+
+            if ( DispatchIndex.isInMaintenence( summary ) ) {
+                continue;
+            }
+
+            long eta = estimateMillis( summary, elevators.get( i ), request );
+
+            if ( eta < best ) {
+                best = eta;
+                selected = i;
+            }
+        }
+        return selected;
+    }
+
+    /** 
+     * Estimates the milliseconds until an elevator arrives at a request.
+     * 
+     * @param summary the elevator's {@link DispatchIndex} summary
+     * @param elevator the elevator being estimated
+     * @param request the floor and direction of the request
+     */
+    protected long estimateMillis( long summary, Elevator elevator, FloorRequest request ) {
+        MotionModel model = elevator.getMotionModel();
+
+        if ( model != null ) {
+            return model.travelMillis( DispatchIndex.distance( summary, request ) )
+                 + DispatchIndex.getStops( summary ) * model.stopMillis();
+        }
+
+        long doorMillis = 1000L * elevator.getDoorOpenWaitSeconds();
+
+        return DispatchIndex.distance( summary, request ) * floorTravelMillis
+             + DispatchIndex.getStops( summary ) * doorMillis;
+    }
+}
@@ -0,0 +1,149 @@
+/*
+ * Copyright (C) 2017 glbrimhall.com
+ *
+ * This file is part of an Elevator Simulator program written in java.
+ *
+ * Elevator Simulator program is free software: you can redistribute it and/or 
+ * modify it under the terms of the GNU General Public License as published
+ * by the Free Software Foundation, version 3 of the License.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.glbrimhall.elevator;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * The FlightRecorder keeps the latest dispatch choices, queue changes and
+ * door cycles in a ring buffer allocated up front, cheap enough to always 
+ * leave on, and dumps them on demand or at shutdown.
+ * Each record takes a slot of four longs: it's stamp, the time, the type, 
+ * elevator, floor and direction packed together, and a value such as a 
+ * distance. A writer claims the next slot with one atomic increment, clears
+ * the stamp, writes the fields then stamps it with it's sequence number, so
+ * no writer ever waits on another. A dump reads the stamp before and after
+ * the fields, and skips the slots being overwritten as it reads them.
+ */
+public class FlightRecorder {
+    public static final int         ADD_FLOOR = 1;
+    public static final int         MOVE_FLOOR = 2;
+    public static final int         CANDIDATE = 3;
+    public static final int         DISPATCH = 4;
+    public static final int         DOORS_OPEN = 5;
+    public static final int         DOORS_CLOSED = 6;
+    public static final int         DEFAULT_RECORDS = 16384;
+    public static final int         MAX_CANDIDATES = 64;
+    protected static final int      FIELDS = 4;
+    protected static final String[] NAMES = { "", "ADD", "MOVE", "CANDIDATE", "DISPATCH", "DOORS OPEN", "DOORS CLOSED" };
+
+    protected final AtomicLongArray ring;
+    protected final int             mask;
+    protected final AtomicLong      next = new AtomicLong();
+    protected volatile ISimulationClock clock = null;
+
+    public FlightRecorder() {
+        this( DEFAULT_RECORDS );
+    }
+
+    /** 
+     * @param records the number of records kept, rounded up to a power of two
+     */
+    public FlightRecorder( int records ) {
+        int capacity = Integer.highestOneBit( Math.max( 2, records ) - 1 ) << 1;
+
+        this.ring = new AtomicLongArray( FIELDS * capacity );
+        this.mask = capacity - 1;
+        this.clock = new RealTimeClock();
+    }
+
+    /** 
+     * Sets the clock the records are timed by.
+     */
+    public void setClock( ISimulationClock new_value ) { clock = new_value; }
+
+    /** 
+     * Returns the number of records kept.
+     */
+    public int getCapacity() { return mask + 1; }
+
+    /** 
+     * Returns the number of records made, including those overwritten since.
+     */
+    public long getRecorded() { return next.get(); }
+
+    /** 
+     * Records an event.
+     * 
+     * @param type ADD_FLOOR, MOVE_FLOOR, CANDIDATE, DISPATCH, DOORS_OPEN or DOORS_CLOSED
+     * @param elevator the elevator's number, see {@link Elevator#getIndex()}
+     * @param request the floor and direction
+     * @param value the candidate's distance, the nanoseconds a dispatch took,
+     *              or the milliseconds the doors were open
+     */
+    public void record( int type, int elevator, FloorRequest request, long value ) {
+        long    sequence = next.getAndIncrement();
+        int     slot = FIELDS * (int)( sequence & mask );
+        long    packed = ( (long) type << 56 ) | ( (long)( elevator & 0xFFFFFF ) << 32 )
+                       | ( ( request.floor & 0x7FFFFFFFL ) << 1 ) 
+                       | ( request.direction == Movement.DOWN ? 1 : 0 );
+
+        ring.lazySet( slot, 0 );
+        ring.lazySet( slot + 1, clock.currentMillis() );
+        ring.lazySet( slot + 2, packed );
+        ring.lazySet( slot + 3, value );
+        ring.lazySet( slot, sequence + 1 );
+    }
+
+    /** 
+     * Appends the records kept, oldest first, one per line.
+     * 
+     * @return the number of records appended
+     */
+    public int dump( StringBuilder out ) {
+        long    last = next.get();
+        long    first = Math.max( 0, last - getCapacity() );
+        int     dumped = 0;
+
+        for ( long sequence = first; sequence < last; ++sequence ) {
+            int     slot = FIELDS * (int)( sequence & mask );
+            long    stamp = ring.get( slot );
+            long    millis = ring.get( slot + 1 );
+            long    packed = ring.get( slot + 2 );
+            long    value = ring.get( slot + 3 );
+
+            if ( stamp != sequence + 1 || ring.get( slot ) != stamp ) {
+                continue;
+            }
+
+            int     type = (int)( packed >>> 56 );
+            int     elevator = (int)( ( packed >>> 32 ) & 0xFFFFFF );
+            int     floor = (int)( ( packed & 0xFFFFFFFFL ) >>> 1 );
+            String  direction = ( packed & 1 ) != 0 ? "DOWN" : "UP";
+
+            String  time = Long.toString( millis );
+
+            for ( int pad = time.length(); pad < 10; ++pad ) {
+                out.append( ' ' );
+            }
+            out.append( time ).append( " ms ELEVATOR[" );
+            Elevator.appendPadded( out, elevator, 2 );
+            out.append( "] " ).append( type < NAMES.length ? NAMES[ type ] : "?" )
+               .append( " [ " ).append( floor ).append( ' ' ).append( direction ).append( " ]" );
+
+            if ( type == CANDIDATE ) { out.append( " distance " ).append( value ); }
+            if ( type == DISPATCH ) { out.append( " in " ).append( value ).append( " ns" ); }
+            if ( type == DOORS_CLOSED ) { out.append( " after " ).append( value ).append( " ms" ); }
+
+            out.append( '\n' );
+            ++dumped;
+        }
+        return dumped;
+    }
+}
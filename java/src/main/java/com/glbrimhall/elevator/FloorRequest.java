@@ -21,7 +21,9 @@ import java.util.Objects;
 
 /**
  * FloorRequest implements Comparable so that it could be used in a sorted container
- * It contains the floor number and direction ( UP or DOWN ) request.
+ * It contains the floor number and direction ( UP or DOWN ) request, and is
+ * immutable so a building shares one instance per floor and direction
+ * through it's {@link FloorRequestTable}.
  * The UP/DOWN are mapped to (+1/-1) * (floor number), 
  * so DOWN requests come before UP requests when sorted, ie DOWN 17 maps to -17.
  * The bottom most floor, 0, is always aligned to be UP.
@@ -30,8 +32,13 @@ import java.util.Objects;
  * requests from the top floor down to the bottom floor.
  */
 public class FloorRequest implements Comparable< FloorRequest > {
-    public int      floor;
-    public Movement direction;
+    public final int        floor;
+    public final Movement   direction;
+
+    /** 
+     * The bottom floor request, where elevators start and go offline.
+     */
+    public static final FloorRequest ZERO_FLOOR = new FloorRequest( 0, Movement.UP );
 
     public FloorRequest(int floor, Movement direction) {
         this.floor = floor;
@@ -100,13 +107,4 @@ public class FloorRequest implements Comparable< FloorRequest > {
         
         return Integer.compare( this_val, that_val );
     }
-    
-    public void copy(FloorRequest obj) {
-        if (this == obj) {
-            return;
-        }
-        
-        floor = obj.floor;
-        direction = obj.direction;
-    }
 }
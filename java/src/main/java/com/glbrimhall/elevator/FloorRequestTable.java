@@ -0,0 +1,70 @@
+/*
+ * Copyright (C) 2017 glbrimhall.com
+ *
+ * This file is part of an Elevator Simulator program written in java.
+ *
+ * Elevator Simulator program is free software: you can redistribute it and/or 
+ * modify it under the terms of the GNU General Public License as published
+ * by the Free Software Foundation, version 3 of the License.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.glbrimhall.elevator;
+
+/**
+ * FloorRequestTable is the flyweight table of every {@link FloorRequest} in a 
+ * building, allocated once for floors 0 through maxFloors in both directions.
+ * Since a FloorRequest is immutable the same instance is shared by hall calls,
+ * elevator buttons and the queues, so requesting a floor allocates nothing.
+ */
+public class FloorRequestTable {
+    protected FloorRequest[]    up = null;
+    protected FloorRequest[]    down = null;
+    protected int               maxFloors;
+
+    /** 
+     * @param maxFloors the top floor of the building
+     */
+    public FloorRequestTable( int maxFloors ) {
+        this.maxFloors = Math.max( 0, maxFloors );
+        this.up = new FloorRequest[ this.maxFloors + 1 ];
+        this.down = new FloorRequest[ this.maxFloors + 1 ];
+
+        // Floor zero is always UP, so both directions share the sentinel.
+        up[ 0 ] = FloorRequest.ZERO_FLOOR;
+        down[ 0 ] = FloorRequest.ZERO_FLOOR;
+
+        for ( int floor = 1; floor <= this.maxFloors; ++floor ) {
+            up[ floor ] = new FloorRequest( floor, Movement.UP );
+            down[ floor ] = new FloorRequest( floor, Movement.DOWN );
+        }
+    }
+
+    /** 
+     * Returns the top floor held by the table.
+     */
+    public int getMaxFloors() { return maxFloors; }
+
+    /** 
+     * Returns the shared FloorRequest for a floor and direction. A floor 
+     * outside of the table is still returned, as a newly allocated FloorRequest.
+     * 
+     * @param floor the requested floor
+     * @param direction the direction of the request
+     */
+    public FloorRequest get( int floor, Movement direction ) {
+        if ( floor < 0 || floor > maxFloors ) {
+            return new FloorRequest( floor, direction );
+        }
+        if ( direction == Movement.DOWN ) {
+            return down[ floor ];
+        }
+        return up[ floor ];
+    }
+}
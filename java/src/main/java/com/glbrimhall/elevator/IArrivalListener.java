@@ -0,0 +1,34 @@
+/*
+ * Copyright (C) 2017 glbrimhall.com
+ *
+ * This file is part of an Elevator Simulator program written in java.
+ *
+ * Elevator Simulator program is free software: you can redistribute it and/or 
+ * modify it under the terms of the GNU General Public License as published
+ * by the Free Software Foundation, version 3 of the License.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.glbrimhall.elevator;
+
+/**
+ * The IArrivalListener is told each time an {@link Elevator} arrives at a 
+ * stop in it's queue, such as the {@link LoadGenerator} boarding the 
+ * passengers waiting there.
+ */
+public interface IArrivalListener {
+
+    /** 
+     * Called by the elevator as it arrives, with no lock of it's queue held.
+     * 
+     * @param elevator the elevator that arrived
+     * @param stop the floor and direction it arrived at
+     */
+    public void arrived( Elevator elevator, FloorRequest stop );
+}
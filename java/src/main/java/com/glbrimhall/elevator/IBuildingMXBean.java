@@ -0,0 +1,78 @@
+/*
+ * Copyright (C) 2017 glbrimhall.com
+ *
+ * This file is part of an Elevator Simulator program written in java.
+ *
+ * Elevator Simulator program is free software: you can redistribute it and/or 
+ * modify it under the terms of the GNU General Public License as published
+ * by the Free Software Foundation, version 3 of the License.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.glbrimhall.elevator;
+
+/**
+ * The IBuildingMXBean is the JMX view of an {@link ElevatorSystem}, 
+ * registered by the {@link MetricsRegistry}. The totals are added up from
+ * each elevator's {@link ElevatorSnapshot} and counters, without locking 
+ * any queue.
+ */
+public interface IBuildingMXBean {
+
+    /** 
+     * Returns the number of elevators.
+     */
+    public int getElevators();
+
+    /** 
+     * Returns the number of elevators in maintenence.
+     */
+    public int getElevatorsInMaintenence();
+
+    /** 
+     * Returns the top floor.
+     */
+    public int getFloors();
+
+    /** 
+     * Returns the number of stops queued in all the elevators.
+     */
+    public int getQueueDepth();
+
+    /** 
+     * Returns the total number of floors traveled by all the elevators.
+     */
+    public long getTraversedFloors();
+
+    /** 
+     * Returns the total number of requests serviced by all the elevators.
+     */
+    public long getNumRequests();
+
+    /** 
+     * Returns the number of hall calls dispatched to an elevator.
+     */
+    public long getHallCalls();
+
+    /** 
+     * Returns the average microseconds the dispatch strategy took to pick 
+     * an elevator.
+     */
+    public double getDispatchMeanMicros();
+
+    /** 
+     * Returns the average milliseconds a hall call waited for an elevator.
+     */
+    public double getWaitMeanMillis();
+
+    /** 
+     * Returns the 99th percentile milliseconds a hall call waited for an elevator.
+     */
+    public long getWaitP99Millis();
+}
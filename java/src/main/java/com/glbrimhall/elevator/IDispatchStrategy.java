@@ -0,0 +1,45 @@
+/*
+ * Copyright (C) 2017 glbrimhall.com
+ *
+ * This file is part of an Elevator Simulator program written in java.
+ *
+ * Elevator Simulator program is free software: you can redistribute it and/or 
+ * modify it under the terms of the GNU General Public License as published
+ * by the Free Software Foundation, version 3 of the License.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.glbrimhall.elevator;
+
+/**
+ * The IDispatchStrategy defines how the {@link ElevatorSystem} picks the 
+ * elevator that answers a floor request. Strategies read the elevators from 
+ * the system's {@link DispatchIndex}, and are selected with the 
+ * --dispatch=[name] option.
+ */
+public interface IDispatchStrategy {
+
+    /** 
+     * Returns the name used to select the strategy.
+     */
+    public String getName();
+
+    /** 
+     * Chooses the elevator for a floor request.
+     * 
+     * @param system the ElevatorSystem with the elevators to choose from
+     * @param request the floor and direction of the request
+     * @param destination the floor the passenger is going to, or -1 when
+     *                    the request only came from an up or down button.
+     * @return the zero based elevator number, or -1 if no elevator was 
+     *         chosen, in which case {@link ElevatorSystem#randomElevator()}
+     *         takes the request.
+     */
+    public int selectElevator( ElevatorSystem system, FloorRequest request, int destination );
+}
@@ -0,0 +1,61 @@
+/*
+ * Copyright (C) 2017 glbrimhall.com
+ *
+ * This file is part of an Elevator Simulator program written in java.
+ *
+ * Elevator Simulator program is free software: you can redistribute it and/or 
+ * modify it under the terms of the GNU General Public License as published
+ * by the Free Software Foundation, version 3 of the License.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.glbrimhall.elevator;
+
+/**
+ * The IElevatorMXBean is the JMX view of an {@link Elevator}, registered by
+ * the {@link MetricsRegistry}. It is read from the elevator's 
+ * {@link ElevatorSnapshot} and counters, without locking it's queue.
+ */
+public interface IElevatorMXBean {
+
+    /** 
+     * Returns the floor the elevator is at.
+     */
+    public int getFloor();
+
+    /** 
+     * Indicates whether the elevator is moving.
+     */
+    public boolean isMoving();
+
+    /** 
+     * Indicates whether the elevator is in maintenence.
+     */
+    public boolean isInMaintenence();
+
+    /** 
+     * Returns the number of stops in the elevator's queue.
+     */
+    public int getQueueDepth();
+
+    /** 
+     * Returns the total number of floors the elevator has traveled.
+     */
+    public long getTraversedFloors();
+
+    /** 
+     * Returns the total number of requests the elevator has serviced.
+     */
+    public long getNumRequests();
+
+    /** 
+     * Returns the total milliseconds the elevator has waited with an empty queue.
+     */
+    public long getIdleMillis();
+}
@@ -0,0 +1,56 @@
+/*
+ * Copyright (C) 2017 glbrimhall.com
+ *
+ * This file is part of an Elevator Simulator program written in java.
+ *
+ * Elevator Simulator program is free software: you can redistribute it and/or 
+ * modify it under the terms of the GNU General Public License as published
+ * by the Free Software Foundation, version 3 of the License.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.glbrimhall.elevator;
+
+/**
+ * The IJournalListener is told of each record as a {@link Journal} is 
+ * replayed, in the order they were written. Elevators are numbered from 1, 
+ * the same as {@link Elevator#getIndex()}
+ */
+public interface IJournalListener {
+
+    /** 
+     * The elevators were initialized, see {@link ElevatorSystem#initialize(int, int)}
+     */
+    public void initialized( int numElevators, int numFloors );
+
+    /** 
+     * A command was parsed, see {@link ParseList#Parse(String)}
+     */
+    public void command( String cmd );
+
+    /** 
+     * A floor was added to an elevator's queue.
+     */
+    public void addFloor( int elevator, int floor, Movement direction );
+
+    /** 
+     * An elevator moved to the next floor in it's queue.
+     */
+    public void moveFloor( int elevator, int floor, Movement direction );
+
+    /** 
+     * Floor buttons pressed inside an elevator were counted as requests.
+     */
+    public void carCalls( int elevator, int count );
+
+    /** 
+     * An elevator went into or came out of maintenence.
+     */
+    public void maintenence( int elevator, boolean inMaintenence );
+}
@@ -0,0 +1,45 @@
+/*
+ * Copyright (C) 2017 glbrimhall.com
+ *
+ * This file is part of an Elevator Simulator program written in java.
+ *
+ * Elevator Simulator program is free software: you can redistribute it and/or 
+ * modify it under the terms of the GNU General Public License as published
+ * by the Free Software Foundation, version 3 of the License.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.glbrimhall.elevator;
+
+/**
+ * The IParkingStrategy defines where an {@link Elevator} goes once it has
+ * nothing queued, instead of waiting wherever it last stopped. Strategies 
+ * are selected with the --parking=[name] option.
+ */
+public interface IParkingStrategy {
+
+    /** 
+     * Returns the name used to select the strategy.
+     */
+    public String getName();
+
+    /** 
+     * Returns how long an elevator waits with nothing queued before it's
+     * parked, so one that is called again soon is not sent away first.
+     */
+    public long getParkingDelayMillis();
+
+    /** 
+     * Chooses where an elevator with nothing queued waits for it's next call.
+     * 
+     * @param elevator the elevator that emptied it's queue
+     * @return the floor and direction to wait at, or null to stay where it is
+     */
+    public FloorRequest selectParking( Elevator elevator );
+}
@@ -29,6 +29,13 @@ interface IParseCommand {
      */
     public char getToken();
 
+    /** 
+     * Indicates the command only makes calls, so it can be run by a 
+     * {@link CommandServer} connection. A status report is printed on the
+     * console, so it is not one of them.
+     */
+    public boolean isRemote();
+
     /** 
      * Parse an input command mapping to a functional call in the ElevatorSystem.
      * 
@@ -0,0 +1,68 @@
+/*
+ * Copyright (C) 2017 glbrimhall.com
+ *
+ * This file is part of an Elevator Simulator program written in java.
+ *
+ * Elevator Simulator program is free software: you can redistribute it and/or 
+ * modify it under the terms of the GNU General Public License as published
+ * by the Free Software Foundation, version 3 of the License.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.glbrimhall.elevator;
+
+/**
+ * The ISimulationClock defines the time source the elevators run on. It is
+ * either the wall clock, for the interactive console, or a virtual clock
+ * where events are run in time order as fast as the cpu allows.
+ */
+public interface ISimulationClock {
+
+    /** 
+     * Returns the current simulation time in milliseconds.
+     */
+    public long currentMillis();
+
+    /** 
+     * Puts the calling thread to sleep for a number of seconds of
+     * simulation time. A virtual clock instead runs all the events
+     * scheduled within those seconds, then returns. An interrupted sleep
+     * returns early, leaving the thread interrupted.
+     * 
+     * @param className is the calling getClass().getName() if an exception
+     * needs to get thrown.
+     * @param seconds is the number of seconds to sleep
+     */
+    public void sleepSeconds( String className, int seconds );
+
+    /** 
+     * Same as {@link #sleepSeconds(String, int)} to the millisecond, for
+     * the timings of a {@link MotionModel}. Zero returns straight away.
+     * 
+     * @param className is the calling getClass().getName() if an exception
+     * needs to get thrown.
+     * @param millis is the number of milliseconds to sleep
+     */
+    public void sleepMillis( String className, long millis );
+
+    /** 
+     * Schedules an event to run once delayMillis of simulation time has passed.
+     * 
+     * @param delayMillis milliseconds from now to run the event
+     * @param event the event to run
+     */
+    public void schedule( long delayMillis, Runnable event );
+
+    /** 
+     * Indicates the clock runs events on simulated time instead of the
+     * wall clock, in which case elevators are driven by scheduled events
+     * instead of each running their own thread.
+     */
+    public boolean isVirtual();
+}
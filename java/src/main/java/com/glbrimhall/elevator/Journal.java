@@ -0,0 +1,545 @@
+/*
+ * Copyright (C) 2017 glbrimhall.com
+ *
+ * This file is part of an Elevator Simulator program written in java.
+ *
+ * Elevator Simulator program is free software: you can redistribute it and/or 
+ * modify it under the terms of the GNU General Public License as published
+ * by the Free Software Foundation, version 3 of the License.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.glbrimhall.elevator;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * The Journal is an append only binary log of the commands parsed and of 
+ * every change to the elevators: floors added to and moved to in their
+ * queues, car calls counted and maintenence. Replaying it in order rebuilds
+ * the elevators, see {@link JournalRestore}
+ * Records are appended to a buffer in memory under a short lock, and a 
+ * writer thread swaps the buffer out and copies it into the memory mapped 
+ * file, so the elevators only ever wait on a copy of a few bytes. The writer
+ * wakes up once a batch fills up, or every few milliseconds otherwise.
+ * The file starts with it's magic number and version, the records follow
+ * with their type in the first byte. The zeros past the last record, as
+ * the mapping grows the file, end the journal.
+ */
+public class Journal implements Runnable {
+    public static final int     MAGIC = 0x454C564A;
+    public static final int     VERSION = 1;
+    public static final byte    INIT = 1;
+    public static final byte    COMMAND = 2;
+    public static final byte    ADD_FLOOR = 3;
+    public static final byte    MOVE_FLOOR = 4;
+    public static final byte    CAR_CALLS = 5;
+    public static final byte    MAINTENENCE = 6;
+    protected static final int  HEADER_BYTES = 8;
+    protected static final int  CHUNK_BYTES = 1 << 20;
+    protected static final int  BATCH_BYTES = 32 * 1024;
+    protected static final long FLUSH_MILLIS = 5;
+
+    protected File              file = null;
+    protected RandomAccessFile  access = null;
+    protected FileChannel       channel = null;
+    protected MappedByteBuffer  mapped = null;
+    protected int               position;
+    protected int               opened;
+    protected ByteBuffer        pending = null;
+    protected ByteBuffer        spare = null;
+    protected long              appended;
+    protected long              written;
+    protected Thread            thread = null;
+    protected boolean           running = false;
+    protected boolean           readOnly = false;
+    protected IOException       failure = null;
+
+    /** 
+     * Opens a journal, creating the file if it does not exist. The writer
+     * thread is only started by {@link #start()}, so the records already in
+     * the file can be replayed first.
+     * 
+     * @param file the journal file
+     * @throws IOException if the file could not be opened, or is not a journal
+     */
+    public Journal( File file ) throws IOException {
+        this( file, false );
+    }
+
+    /** 
+     * Opens a journal, which when read only can only be replayed and must
+     * already exist.
+     * 
+     * @param file the journal file
+     * @param readOnly open the file without changing it
+     * @throws IOException if the file could not be opened, or is not a journal
+     */
+    public Journal( File file, boolean readOnly ) throws IOException {
+        this.file = file;
+        this.readOnly = readOnly;
+        this.access = new RandomAccessFile( file, readOnly ? "r" : "rw" );
+        this.channel = access.getChannel();
+        this.pending = ByteBuffer.allocate( 64 * 1024 );
+        this.spare = ByteBuffer.allocate( 64 * 1024 );
+
+        try {
+            boolean empty = channel.size() == 0;
+
+            // The header is checked before mapping, which would grow a file
+            // that is not a journal.
+            if ( ! empty || readOnly ) {
+                ByteBuffer header = ByteBuffer.allocate( HEADER_BYTES );
+
+                while ( header.hasRemaining() && channel.read( header, header.position() ) > 0 ) { }
+
+                if ( header.hasRemaining() || header.getInt( 0 ) != MAGIC || header.getInt( 4 ) != VERSION ) {
+                    throw new IOException( file + " is not a version " + VERSION + " journal" );
+                }
+            }
+
+            if ( readOnly ) {
+                mapped = channel.map( FileChannel.MapMode.READ_ONLY, 0, channel.size() );
+            }
+            else {
+                map( Math.max( channel.size(), CHUNK_BYTES ) );
+            }
+
+            if ( empty ) {
+                mapped.putInt( 0, MAGIC );
+                mapped.putInt( 4, VERSION );
+            }
+
+            position = read( HEADER_BYTES, null, null );
+            opened = position;
+        } catch ( IOException ex ) {
+            channel.close();
+            throw ex;
+        }
+    }
+
+    /** 
+     * Returns the journal file.
+     */
+    public File getFile() { return file; }
+
+    /** 
+     * Returns the number of bytes of records in the file.
+     */
+    public synchronized int getPosition() { return position; }
+
+    /** 
+     * Returns the offset in the file the next record appended goes at, 
+     * once it is written. An elevator's state read with it's queue's lock
+     * held is cut at this point of the journal, see {@link SystemSnapshot}
+     */
+    public synchronized int getAppendPosition() { return opened + (int) appended; }
+
+    /** 
+     * Starts the writer thread.
+     */
+    public synchronized void start() {
+        if ( thread != null || readOnly ) {
+            return;
+        }
+        running = true;
+        thread = new Thread( this, "Journal" );
+        thread.setDaemon( true );
+        thread.start();
+    }
+
+    /** 
+     * Writes out the records appended so far and closes the file. Records 
+     * appended after are dropped.
+     */
+    public void close() {
+        Thread writer;
+
+        synchronized ( this ) {
+            running = false;
+            writer = thread;
+            notifyAll();
+        }
+
+        try {
+            if ( writer != null ) {
+                writer.join();
+            }
+            if ( ! readOnly ) {
+                mapped.force();
+            }
+            channel.close();
+        } catch ( InterruptedException ex ) {
+            Thread.currentThread().interrupt();
+        } catch ( IOException ex ) {
+            System.out.println( "Could not close journal " + file + ": " + ex.getMessage() );
+        }
+    }
+
+    /** 
+     * Returns why the writer stopped, such as the journal being full, or 
+     * null while it is writing. Records appended after are dropped.
+     */
+    public synchronized IOException getFailure() { return failure; }
+
+    /** 
+     * Blocks until the records appended so far are in the mapped file.
+     * 
+     * @throws IOException if the writer stopped before writing them
+     */
+    public synchronized void flush() throws InterruptedException, IOException {
+        while ( running && written < appended ) {
+            wait();
+        }
+
+        if ( failure != null ) {
+            throw failure;
+        }
+    }
+
+    /** 
+     * Replays the records in the file, as they were when it was opened.
+     * 
+     * @param listener told of each record in order
+     * @return the number of bytes of records replayed
+     */
+    public int replay( IJournalListener listener ) {
+        return replay( listener, null );
+    }
+
+    /** 
+     * Replays the records after each elevator's cut, as restored from a
+     * {@link SystemSnapshot}
+     * 
+     * @param listener told of each record in order
+     * @param cuts the offset in the file each elevator's state was cut at,
+     *             it's records before are skipped. Null replays them all.
+     * @return the number of bytes of records replayed
+     */
+    public int replay( IJournalListener listener, int[] cuts ) {
+        int from = HEADER_BYTES;
+
+        if ( cuts != null && cuts.length > 0 ) {
+            from = Integer.MAX_VALUE;
+
+            for ( int cut: cuts ) {
+                from = Math.min( from, Math.max( cut, HEADER_BYTES ) );
+            }
+        }
+
+        if ( from >= position ) {
+            return 0;
+        }
+        return read( from, listener, cuts ) - from;
+    }
+
+    /** 
+     * Appends the elevators being initialized.
+     */
+    public synchronized void initialized( int numElevators, int numFloors ) {
+        reserve( 9 ).put( INIT ).putInt( numElevators ).putInt( numFloors );
+    }
+
+    /** 
+     * Appends a parsed command. One too long to record is left out.
+     * Commands are almost always ascii, which is copied straight in.
+     */
+    public void command( String cmd ) {
+        int length = cmd.length();
+
+        for ( int i = 0; i < length; ++i ) {
+            if ( cmd.charAt( i ) >= 0x80 ) {
+                command( cmd.getBytes( StandardCharsets.UTF_8 ) );
+                return;
+            }
+        }
+
+        if ( length > 0xFFFF ) {
+            return;
+        }
+
+        synchronized ( this ) {
+            ByteBuffer buffer = reserve( 3 + length ).put( COMMAND ).putShort( (short) length );
+
+            for ( int i = 0; i < length; ++i ) {
+                buffer.put( (byte) cmd.charAt( i ) );
+            }
+        }
+    }
+
+    protected void command( byte[] bytes ) {
+        if ( bytes.length > 0xFFFF ) {
+            return;
+        }
+
+        synchronized ( this ) {
+            reserve( 3 + bytes.length ).put( COMMAND ).putShort( (short) bytes.length ).put( bytes );
+        }
+    }
+
+    /** 
+     * Appends a floor added to an elevator's queue.
+     */
+    public synchronized void addFloor( int elevator, FloorRequest request ) {
+        reserve( 8 ).put( ADD_FLOOR ).putShort( (short) elevator )
+                    .putInt( request.floor ).put( (byte) request.direction.ordinal() );
+    }
+
+    /** 
+     * Appends an elevator moving to the next floor in it's queue.
+     */
+    public synchronized void moveFloor( int elevator, FloorRequest stop ) {
+        reserve( 8 ).put( MOVE_FLOOR ).putShort( (short) elevator )
+                    .putInt( stop.floor ).put( (byte) stop.direction.ordinal() );
+    }
+
+    /** 
+     * Appends floor buttons pressed inside an elevator, counted as requests.
+     */
+    public synchronized void carCalls( int elevator, int count ) {
+        reserve( 7 ).put( CAR_CALLS ).putShort( (short) elevator ).putInt( count );
+    }
+
+    /** 
+     * Appends an elevator going into or coming out of maintenence.
+     */
+    public synchronized void maintenence( int elevator, boolean inMaintenence ) {
+        reserve( 4 ).put( MAINTENENCE ).putShort( (short) elevator ).put( (byte)( inMaintenence ? 1 : 0 ) );
+    }
+
+    /** 
+     * Makes room for a record in the pending buffer, waking the writer for
+     * the first record and once the batch is full. Called with the 
+     * journal's lock held. Once the writer failed the record is written
+     * over the start of the buffer and dropped.
+     */
+    protected ByteBuffer reserve( int bytes ) {
+        if ( failure != null ) {
+            pending.clear();
+        }
+        else
+        if ( pending.position() == 0 
+             || ( pending.position() < BATCH_BYTES && pending.position() + bytes >= BATCH_BYTES ) ) {
+            notifyAll();
+        }
+
+        if ( pending.remaining() < bytes ) {
+            ByteBuffer grown = ByteBuffer.allocate( Math.max( 2 * pending.capacity(), pending.position() + bytes ) );
+
+            pending.flip();
+            grown.put( pending );
+            pending = grown;
+        }
+
+        if ( failure == null ) {
+            appended += bytes;
+        }
+        return pending;
+    }
+
+    /** 
+     * The writer thread, copying each batch of pending records into the file.
+     * It sleeps until a record is appended, then gives the batch 
+     * FLUSH_MILLIS to fill up. A batch that can't be written stops it.
+     */
+    @Override
+    public void run() {
+        while ( true ) {
+            ByteBuffer batch;
+
+            synchronized ( this ) {
+                try {
+                    while ( running && pending.position() == 0 ) {
+                        wait();
+                    }
+
+                    if ( running && pending.position() < BATCH_BYTES ) {
+                        wait( FLUSH_MILLIS );
+                    }
+                } catch ( InterruptedException ex ) {
+                    running = false;
+                }
+
+                if ( pending.position() == 0 ) {
+                    return;
+                }
+
+                batch = pending;
+                pending = spare;
+                spare = batch;
+            }
+
+            batch.flip();
+
+            int bytes = batch.remaining();
+
+            try {
+                write( batch );
+            } catch ( IOException ex ) {
+                System.out.println( "Could not write journal " + file + ", no more records are kept: " 
+                                    + ex.getMessage() );
+
+                synchronized ( this ) {
+                    failure = ex;
+                    running = false;
+                    pending.clear();
+                    notifyAll();
+                }
+                return;
+            }
+
+            batch.clear();
+
+            synchronized ( this ) {
+                written += bytes;
+                notifyAll();
+            }
+        }
+    }
+
+    /** 
+     * Copies a batch to the end of the mapped file, mapping more of the 
+     * file once it is full. Only called by the writer thread.
+     */
+    protected void write( ByteBuffer batch ) throws IOException {
+        if ( (long) position + batch.remaining() > mapped.capacity() ) {
+            long size = mapped.capacity();
+
+            while ( size < (long) position + batch.remaining() ) {
+                size *= 2;
+            }
+
+            if ( size > Integer.MAX_VALUE ) {
+                throw new IOException( "the journal is full" );
+            }
+            map( size );
+        }
+
+        mapped.position( position );
+        mapped.put( batch );
+
+        synchronized ( this ) {
+            position = mapped.position();
+        }
+    }
+
+    /** 
+     * Maps the file up to a size, growing it if it is shorter.
+     */
+    protected void map( long size ) throws IOException {
+        mapped = channel.map( FileChannel.MapMode.READ_WRITE, 0, size );
+    }
+
+    /** 
+     * Reads the records from an offset up to the end of the journal.
+     * A record cut short by a crash in the middle of a write ends it.
+     * 
+     * @param offset where the first record starts
+     * @param listener told of each record, or null to only find the end
+     * @param cuts the offset each elevator's records start from, or null
+     * @return the offset after the last complete record
+     */
+    protected int read( int offset, IJournalListener listener, int[] cuts ) {
+        ByteBuffer buffer = mapped.duplicate();
+
+        buffer.position( offset );
+
+        try {
+            while ( buffer.hasRemaining() ) {
+                int     start = buffer.position();
+                byte    type = buffer.get();
+
+                if ( type == INIT ) {
+                    int numElevators = buffer.getInt();
+                    int numFloors = buffer.getInt();
+
+                    if ( listener != null ) { listener.initialized( numElevators, numFloors ); }
+                }
+                else
+                if ( type == COMMAND ) {
+                    byte[] bytes = new byte[ buffer.getShort() & 0xFFFF ];
+
+                    buffer.get( bytes );
+
+                    if ( listener != null ) { listener.command( new String( bytes, StandardCharsets.UTF_8 ) ); }
+                }
+                else
+                if ( type == ADD_FLOOR || type == MOVE_FLOOR ) {
+                    int         elevator = buffer.getShort() & 0xFFFF;
+                    int         floor = buffer.getInt();
+                    Movement    direction = buffer.get() == 1 ? Movement.DOWN : Movement.UP;
+
+                    if ( listener != null && ! skip( cuts, elevator, start ) ) {
+                        if ( type == ADD_FLOOR ) { listener.addFloor( elevator, floor, direction ); }
+                        else { listener.moveFloor( elevator, floor, direction ); }
+                    }
+                }
+                else
+                if ( type == CAR_CALLS ) {
+                    int elevator = buffer.getShort() & 0xFFFF;
+                    int count = buffer.getInt();
+
+                    if ( listener != null && ! skip( cuts, elevator, start ) ) { listener.carCalls( elevator, count ); }
+                }
+                else
+                if ( type == MAINTENENCE ) {
+                    int     elevator = buffer.getShort() & 0xFFFF;
+                    boolean inMaintenence = buffer.get() != 0;
+
+                    if ( listener != null && ! skip( cuts, elevator, start ) ) { listener.maintenence( elevator, inMaintenence ); }
+                }
+                else {
+                    return start;
+                }
+
+                offset = buffer.position();
+            }
+        } catch ( BufferUnderflowException ex ) {
+        }
+        return offset;
+    }
+
+    /** 
+     * Indicates an elevator's record is from before it's state was cut.
+     */
+    protected static boolean skip( int[] cuts, int elevator, int offset ) {
+        return cuts != null && 1 <= elevator && elevator <= cuts.length && offset < cuts[ elevator - 1 ];
+    }
+
+    /** 
+     * Prints the records of a journal, one per line.
+     */
+    public static void main( String[] args ) throws IOException {
+        if ( args.length < 1 ) {
+            System.out.println( "usage: Journal <journal file>" );
+            return;
+        }
+
+        Journal journal = new Journal( new File( args[ 0 ] ), true );
+
+        int bytes = journal.replay( new IJournalListener() {
+            @Override public void initialized( int numElevators, int numFloors ) { System.out.println( "init " + numElevators + " elevators " + numFloors + " floors" ); }
+            @Override public void command( String cmd ) { System.out.println( "command " + cmd ); }
+            @Override public void addFloor( int elevator, int floor, Movement direction ) { System.out.println( "add " + elevator + " " + floor + " " + direction ); }
+            @Override public void moveFloor( int elevator, int floor, Movement direction ) { System.out.println( "move " + elevator + " " + floor + " " + direction ); }
+            @Override public void carCalls( int elevator, int count ) { System.out.println( "car calls " + elevator + " " + count ); }
+            @Override public void maintenence( int elevator, boolean inMaintenence ) { System.out.println( "maintenence " + elevator + " " + inMaintenence ); }
+        } );
+
+        journal.close();
+        System.out.println( bytes + " bytes of records" );
+    }
+}
@@ -0,0 +1,114 @@
+/*
+ * Copyright (C) 2017 glbrimhall.com
+ *
+ * This file is part of an Elevator Simulator program written in java.
+ *
+ * Elevator Simulator program is free software: you can redistribute it and/or 
+ * modify it under the terms of the GNU General Public License as published
+ * by the Free Software Foundation, version 3 of the License.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.glbrimhall.elevator;
+
+/**
+ * The JournalRestore rebuilds an {@link ElevatorSystem} from the records of
+ * a {@link Journal}: the elevators are created, their queues are replayed 
+ * floor by floor and their counters added up, before any of them start.
+ * The parsed commands are only kept in the journal as a record of what was
+ * asked for, the changes they made are replayed instead of the commands so
+ * dispatch does not have to make the same choices again.
+ */
+public class JournalRestore implements IJournalListener {
+    protected ElevatorSystem    system = null;
+    protected long[]            traversedFloors = null;
+    protected long[]            numRequests = null;
+    protected int               commands;
+
+    /** 
+     * @param system the system to restore, either not yet initialized or 
+     *               with it's elevators loaded from a {@link SystemSnapshot}
+     */
+    public JournalRestore( ElevatorSystem system ) {
+        this.system = system;
+        this.traversedFloors = new long[ system.getElevatorList().size() ];
+        this.numRequests = new long[ traversedFloors.length ];
+    }
+
+    /** 
+     * Returns the number of parsed commands replayed.
+     */
+    public int getCommands() { return commands; }
+
+    @Override
+    public void initialized( int numElevators, int numFloors ) {
+        if ( system.isInitialized() ) {
+            return;
+        }
+        system.createElevators( numElevators, numFloors );
+
+        traversedFloors = new long[ system.getElevatorList().size() ];
+        numRequests = new long[ traversedFloors.length ];
+    }
+
+    @Override
+    public void command( String cmd ) {
+        ++commands;
+    }
+
+    @Override
+    public void addFloor( int elevator, int floor, Movement direction ) {
+        if ( valid( elevator ) ) {
+            system.getElevatorList().get( elevator - 1 ).getQueue().addFloor( floor, direction );
+        }
+    }
+
+    @Override
+    public void moveFloor( int elevator, int floor, Movement direction ) {
+        if ( ! valid( elevator ) ) {
+            return;
+        }
+
+        ElevatorQueue queue = system.getElevatorList().get( elevator - 1 ).getQueue();
+
+        traversedFloors[ elevator - 1 ] += Math.abs( floor - queue.getServicing().floor );
+        queue.moveFloor( system.getFloorRequests().get( floor, direction ) );
+    }
+
+    @Override
+    public void carCalls( int elevator, int count ) {
+        if ( valid( elevator ) ) {
+            numRequests[ elevator - 1 ] += count;
+        }
+    }
+
+    @Override
+    public void maintenence( int elevator, boolean inMaintenence ) {
+        if ( valid( elevator ) ) {
+            system.getElevatorList().get( elevator - 1 ).setInMaintenence( inMaintenence );
+        }
+    }
+
+    /** 
+     * Adds the replayed counters onto the elevators, once the whole 
+     * journal is replayed.
+     */
+    public void finish() {
+        for ( int i = 0; i < traversedFloors.length; ++i ) {
+            Elevator elevator = system.getElevatorList().get( i );
+
+            elevator.restoreCounters( elevator.getTraversedFloors() + traversedFloors[ i ],
+                                      elevator.getNumRequests() + numRequests[ i ] );
+        }
+    }
+
+    protected boolean valid( int elevator ) {
+        return 1 <= elevator && elevator <= traversedFloors.length;
+    }
+}
@@ -0,0 +1,155 @@
+/*
+ * Copyright (C) 2017 glbrimhall.com
+ *
+ * This file is part of an Elevator Simulator program written in java.
+ *
+ * Elevator Simulator program is free software: you can redistribute it and/or 
+ * modify it under the terms of the GNU General Public License as published
+ * by the Free Software Foundation, version 3 of the License.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.glbrimhall.elevator;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * LatencyHistogram is a lock free histogram of millisecond latencies, laid 
+ * out like an HdrHistogram: values below 64 have a bucket each, above that
+ * every power of two is split into 32 buckets, so any recorded value is
+ * within about 3% of the value reported for it. Values are capped at about
+ * 24 days. The buckets are only allocated once the first value is recorded.
+ */
+public class LatencyHistogram {
+    protected volatile AtomicLongArray  counts = null;
+    protected AtomicLong                count = null;
+    protected AtomicLong                total = null;
+    protected AtomicLong                max = null;
+
+    protected static final int          SUB_BITS = 5;
+    protected static final int          SUB_COUNT = 1 << SUB_BITS;
+    protected static final long         MAX_VALUE = Integer.MAX_VALUE;
+    protected static final int          BUCKETS = bucketIndex( MAX_VALUE ) + 1;
+
+    public LatencyHistogram() {
+        this.count = new AtomicLong();
+        this.total = new AtomicLong();
+        this.max = new AtomicLong();
+    }
+
+    /** 
+     * Records a latency.
+     * 
+     * @param millis the latency in milliseconds, negative values count as zero
+     */
+    public void record( long millis ) {
+        millis = Math.min( Math.max( millis, 0 ), MAX_VALUE );
+
+        getCounts().incrementAndGet( bucketIndex( millis ) );
+        count.incrementAndGet();
+        total.addAndGet( millis );
+
+        long highest = max.get();
+
+        while ( millis > highest && ! max.compareAndSet( highest, millis ) ) {
+            highest = max.get();
+        }
+    }
+
+    /** 
+     * Returns the number of latencies recorded.
+     */
+    public long getCount() { return count.get(); }
+
+    /** 
+     * Returns the largest latency recorded.
+     */
+    public long getMax() { return max.get(); }
+
+    /** 
+     * Returns the average latency recorded, or 0 if none were.
+     */
+    public double getMean() {
+        long n = count.get();
+        return n == 0 ? 0 : (double) total.get() / n;
+    }
+
+    /** 
+     * Returns the latency at a percentile, as the highest value of the
+     * bucket it falls in.
+     * 
+     * @param percentile between 0 and 100, eg 99 for p99
+     * @return the latency in milliseconds, or 0 if none were recorded.
+     */
+    public long getPercentile( double percentile ) {
+        AtomicLongArray buckets = counts;
+        long            n = count.get();
+
+        if ( buckets == null || n == 0 ) {
+            return 0;
+        }
+
+        long rank = (long) Math.ceil( n * Math.min( Math.max( percentile, 0 ), 100 ) / 100 );
+        long seen = 0;
+
+        for ( int i = 0; i < BUCKETS; ++i ) {
+            seen += buckets.get( i );
+
+            if ( seen >= Math.max( rank, 1 ) ) {
+                return Math.min( bucketHighest( i ), getMax() );
+            }
+        }
+        return getMax();
+    }
+
+    /** 
+     * Returns a one line summary, eg "n=10 avg=3.2 p50=3 p95=5 p99=5 max=5 ms".
+     */
+    public String report() {
+        return String.format( "n=%d avg=%.1f p50=%d p95=%d p99=%d max=%d ms",
+                              getCount(), getMean(), getPercentile( 50 ),
+                              getPercentile( 95 ), getPercentile( 99 ), getMax() );
+    }
+
+    protected AtomicLongArray getCounts() {
+        AtomicLongArray buckets = counts;
+
+        if ( buckets == null ) {
+            synchronized ( this ) {
+                if ( counts == null ) {
+                    counts = new AtomicLongArray( BUCKETS );
+                }
+                buckets = counts;
+            }
+        }
+        return buckets;
+    }
+
+    protected static int bucketIndex( long value ) {
+        if ( value < 2 * SUB_COUNT ) {
+            return (int) value;
+        }
+
+        int shift = 63 - Long.numberOfLeadingZeros( value ) - SUB_BITS;
+
+        return ( shift + 1 ) * SUB_COUNT + (int)( ( value >>> shift ) - SUB_COUNT );
+    }
+
+    protected static long bucketHighest( int index ) {
+        if ( index < 2 * SUB_COUNT ) {
+            return index;
+        }
+
+        int shift = index / SUB_COUNT - 1;
+        long sub = index % SUB_COUNT + SUB_COUNT;
+
+        return ( ( sub + 1 ) << shift ) - 1;
+    }
+}
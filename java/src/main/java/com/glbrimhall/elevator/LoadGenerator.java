@@ -0,0 +1,359 @@
+/*
+ * Copyright (C) 2017 glbrimhall.com
+ *
+ * This file is part of an Elevator Simulator program written in java.
+ *
+ * Elevator Simulator program is free software: you can redistribute it and/or 
+ * modify it under the terms of the GNU General Public License as published
+ * by the Free Software Foundation, version 3 of the License.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.glbrimhall.elevator;
+
+import java.util.Arrays;
+import java.util.SplittableRandom;
+
+/**
+ * LoadGenerator drives an {@link ElevatorSystem} with synthetic passengers.
+ * Each passenger arrives at a floor and presses the up or down button, 
+ * through {@link ElevatorSystem#floorRequest(int, Movement)}, then boards 
+ * the first elevator to stop there in it's direction and presses it's 
+ * destination, through {@link Elevator#buttonPressed(int)}.
+ * <p>
+ * Passengers arrive on every floor as independent Poisson processes, with 
+ * the rates and destinations set by a {@link Profile}, and how busy each 
+ * floor above the lobby is set by {@link #setFloorWeights(double[])}. These
+ * are generated as their sum, one Poisson process over the building with 
+ * each arrival's floor picked in proportion to the floor's rate, which has
+ * the same distribution. Arrivals are scheduled on the system's clock from a seeded
+ * SplittableRandom, so on a {@link VirtualClock} a run is reproducible and 
+ * goes as fast as the cpu allows.
+ */
+public class LoadGenerator implements IArrivalListener {
+
+    /**
+     * The traffic profiles, as the share of passengers coming in from the 
+     * lobby at floor 0, going out to the lobby, and going between the other
+     * floors.
+     */
+    public enum Profile {
+        UP_PEAK( 0.85, 0.10 ),
+        DOWN_PEAK( 0.05, 0.85 ),
+        LUNCH( 0.45, 0.45 ),
+        INTERFLOOR( 0.10, 0.10 );
+
+        public final double incoming;
+        public final double outgoing;
+
+        Profile( double incoming, double outgoing ) {
+            this.incoming = incoming;
+            this.outgoing = outgoing;
+        }
+
+        /** 
+         * Returns the share of passengers going between the other floors.
+         */
+        public double getInterfloor() { return 1.0 - incoming - outgoing; }
+
+        /** 
+         * Returns the profile named up, down, lunch or interfloor, or by 
+         * it's enum name, or null if there is none.
+         */
+        public static Profile forName( String name ) {
+            if ( name.equalsIgnoreCase( "up" ) ) { return UP_PEAK; }
+            if ( name.equalsIgnoreCase( "down" ) ) { return DOWN_PEAK; }
+
+            for ( Profile profile: values() ) {
+                if ( profile.name().equalsIgnoreCase( name ) ) {
+                    return profile;
+                }
+            }
+            return null;
+        }
+    }
+
+    protected ElevatorSystem    system = null;
+    protected ISimulationClock  clock = null;
+    protected Profile           profile;
+    protected double            meanGapMillis;
+    protected SplittableRandom  random = null;
+    protected int               maxFloors;
+    protected double[]          floorWeights = null;
+    protected double[]          cumulativeWeights = null;
+    protected double            nextArrival;
+    protected long              endMillis;
+    protected int[][]           waiting = null;
+    protected int[]             waitingCount = null;
+    protected long              passengers;
+    protected long              boarded;
+    protected Runnable          arrivalEvent;
+
+    /** 
+     * @param system the ElevatorSystem to drive, it's clock runs the arrivals
+     * @param profile the traffic profile
+     * @param passengersPerMinute the arrival rate of the whole building
+     * @param seed the seed of the random arrivals
+     */
+    public LoadGenerator( ElevatorSystem system, Profile profile, 
+                          double passengersPerMinute, long seed ) {
+        this.system = system;
+        this.clock = system.getClock();
+        this.profile = profile;
+        this.meanGapMillis = 60000.0 / Math.max( passengersPerMinute, 1e-9 );
+        this.random = new SplittableRandom( seed );
+        this.arrivalEvent = this::arrival;
+    }
+
+    /** 
+     * Returns the number of passengers that arrived so far.
+     */
+    public synchronized long getPassengers() { return passengers; }
+
+    /** 
+     * Returns the number of passengers that boarded an elevator so far.
+     */
+    public synchronized long getBoarded() { return boarded; }
+
+    /** 
+     * Sets how busy each floor above the lobby is, as it's share of the 
+     * passengers arriving at and going to the floors above the lobby. 
+     * Without weights every floor is as busy. Needs to happen before 
+     * {@link #start(long)}.
+     * 
+     * @param weights the relative rate of floor 1 at [0], floor 2 at [1] and
+     *                so on. Floors past the end of the array get no passengers.
+     * @return false if a weight is negative or the generator is started
+     */
+    public synchronized boolean setFloorWeights( double[] weights ) {
+        if ( waiting != null ) {
+            return false;
+        }
+
+        for ( double weight: weights ) {
+            if ( ! ( weight >= 0 ) ) {
+                return false;
+            }
+        }
+        floorWeights = weights.clone();
+        return true;
+    }
+
+    /** 
+     * Starts generating passengers, for a duration from now on the clock.
+     * The system's elevators must be initialized, with at least one floor
+     * above the lobby with a weight.
+     * 
+     * @param durationMillis how long passengers keep arriving
+     * @return false if the system is not initialized
+     */
+    public synchronized boolean start( long durationMillis ) {
+        if ( ! system.isInitialized() || system.getMaxFloors() < 1 ) {
+            return false;
+        }
+
+        maxFloors = system.getMaxFloors();
+        cumulativeWeights = new double[ maxFloors ];
+
+        for ( int i = 0; i < maxFloors; ++i ) {
+            double weight = floorWeights == null ? 1 
+                            : i < floorWeights.length ? floorWeights[ i ] : 0;
+
+            cumulativeWeights[ i ] = weight + ( i > 0 ? cumulativeWeights[ i - 1 ] : 0 );
+        }
+
+        if ( cumulativeWeights[ maxFloors - 1 ] <= 0 ) {
+            return false;
+        }
+
+        waiting = new int[ 2 * ( maxFloors + 1 ) ][];
+        waitingCount = new int[ 2 * ( maxFloors + 1 ) ];
+
+        for ( Elevator elevator: system.getElevatorList() ) {
+            elevator.setArrivalListener( this );
+        }
+
+        nextArrival = clock.currentMillis();
+        endMillis = clock.currentMillis() + durationMillis;
+        scheduleNext();
+        return true;
+    }
+
+    /** 
+     * Schedules the next arrival, exponentially distributed after the last.
+     */
+    protected void scheduleNext() {
+        nextArrival += -Math.log( 1.0 - random.nextDouble() ) * meanGapMillis;
+
+        if ( nextArrival > endMillis ) {
+            return;
+        }
+        clock.schedule( Math.max( 0, (long) nextArrival - clock.currentMillis() ), arrivalEvent );
+    }
+
+    /** 
+     * A passenger arrives at a floor and calls an elevator.
+     */
+    protected synchronized void arrival() {
+        int     origin;
+        int     destination;
+        double  flow = random.nextDouble();
+
+        if ( flow < profile.incoming ) {
+            origin = 0;
+            destination = pickFloor();
+        }
+        else {
+            origin = pickFloor();
+
+            // The outgoing share go to the lobby, the rest to another floor
+            // if there is one with a weight.
+            if ( flow < profile.incoming + profile.outgoing 
+                 || getFloorWeight( origin ) >= cumulativeWeights[ maxFloors - 1 ] ) {
+                destination = 0;
+            }
+            else {
+                do {
+                    destination = pickFloor();
+                } while ( destination == origin );
+            }
+        }
+
+        Movement    direction = destination > origin ? Movement.UP : Movement.DOWN;
+        int         slot = slot( origin, direction );
+
+        if ( waiting[ slot ] == null ) {
+            waiting[ slot ] = new int[ 4 ];
+        }
+        else
+        if ( waitingCount[ slot ] == waiting[ slot ].length ) {
+            waiting[ slot ] = Arrays.copyOf( waiting[ slot ], 2 * waitingCount[ slot ] );
+        }
+        waiting[ slot ][ waitingCount[ slot ]++ ] = destination;
+        ++passengers;
+
+        system.floorRequest( origin, direction );
+        scheduleNext();
+    }
+
+    /** 
+     * Picks a floor above the lobby in proportion to it's weight, by a 
+     * binary search of the cumulative weights for the first one past a 
+     * random point.
+     */
+    protected int pickFloor() {
+        double  point = random.nextDouble() * cumulativeWeights[ maxFloors - 1 ];
+        int     low = 0;
+        int     high = maxFloors - 1;
+
+        while ( low < high ) {
+            int middle = ( low + high ) >>> 1;
+
+            if ( cumulativeWeights[ middle ] > point ) {
+                high = middle;
+            }
+            else {
+                low = middle + 1;
+            }
+        }
+        return 1 + low;
+    }
+
+    /** 
+     * Returns the weight of a floor above the lobby, from the cumulative weights.
+     */
+    protected double getFloorWeight( int floor ) {
+        return cumulativeWeights[ floor - 1 ] - ( floor > 1 ? cumulativeWeights[ floor - 2 ] : 0 );
+    }
+
+    /** 
+     * Boards the passengers waiting at the stop, who press their destinations.
+     * An elevator in maintenence is not boarded, the call is made again so
+     * another elevator comes.
+     */
+    @Override
+    public synchronized void arrived( Elevator elevator, FloorRequest stop ) {
+        if ( stop.floor > maxFloors ) {
+            return;
+        }
+
+        int slot = slot( stop.floor, stop.direction );
+
+        if ( waitingCount[ slot ] == 0 ) {
+            return;
+        }
+
+        if ( elevator.isInMaintenence() ) {
+            system.floorRequest( stop.floor, stop.direction );
+            return;
+        }
+
+        for ( int i = 0; i < waitingCount[ slot ]; ++i ) {
+            elevator.buttonPressed( waiting[ slot ][ i ] );
+        }
+        boarded += waitingCount[ slot ];
+        waitingCount[ slot ] = 0;
+    }
+
+    /** 
+     * Returns the index of a floor and direction, same as the {@link ElevatorMetrics}.
+     */
+    protected static int slot( int floor, Movement direction ) {
+        return 2 * floor + ( direction == Movement.DOWN && floor != 0 ? 1 : 0 );
+    }
+
+    /**
+     * Runs a building under generated load on a {@link VirtualClock}, then 
+     * reports it's wait and journey times.
+     */
+    public static void main( String[] args ) {
+        if ( args.length < 5 ) {
+            System.out.println( "usage: LoadGenerator <up|down|lunch|interfloor> <elevators> <floors> " 
+                                + "<passengers per minute> <minutes> [seed] [commands]" );
+            return;
+        }
+
+        Profile         profile = Profile.forName( args[ 0 ] );
+        ElevatorSystem  system = new ElevatorSystem();
+        long            seed = args.length > 5 ? Long.parseLong( args[ 5 ] ) : 1;
+        long            started = System.currentTimeMillis();
+
+        if ( profile == null ) {
+            System.out.println( "Unknown profile: " + args[ 0 ] + ", use up, down, lunch or interfloor" );
+            return;
+        }
+
+        system.setClock( new VirtualClock() );
+
+        // Options such as --dispatch=eta, set before the elevators are created.
+        for ( int i = 6; i < args.length; ++i ) {
+            System.out.println( args[ i ] + ": " + system.getParser().Parse( args[ i ] ) );
+        }
+
+        system.initialize( Integer.parseInt( args[ 1 ] ), Integer.parseInt( args[ 2 ] ) );
+
+        LoadGenerator   generator = new LoadGenerator( system, profile, Double.parseDouble( args[ 3 ] ), seed );
+        VirtualClock    clock = (VirtualClock) system.getClock();
+
+        generator.start( (long) ( 60000 * Double.parseDouble( args[ 4 ] ) ) );
+        clock.advanceUntilIdle();
+
+        long floors = 0;
+
+        for ( Elevator elevator: system.getElevatorList() ) {
+            floors += elevator.getTraversedFloors();
+        }
+
+        system.reportMetrics();
+        System.out.format( "Profile %s: %d passengers, %d boarded, %d floors traversed, "
+                           + "%.1f simulated seconds in %d ms.\n",
+                           profile, generator.getPassengers(), generator.getBoarded(), floors,
+                           clock.currentMillis() / 1000.0, System.currentTimeMillis() - started );
+    }
+}
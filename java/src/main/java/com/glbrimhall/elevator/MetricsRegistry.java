@@ -0,0 +1,377 @@
+/*
+ * Copyright (C) 2017 glbrimhall.com
+ *
+ * This file is part of an Elevator Simulator program written in java.
+ *
+ * Elevator Simulator program is free software: you can redistribute it and/or 
+ * modify it under the terms of the GNU General Public License as published
+ * by the Free Software Foundation, version 3 of the License.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.glbrimhall.elevator;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.lang.management.ManagementFactory;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+/**
+ * The MetricsRegistry exposes the counters and gauges of an {@link ElevatorSystem}
+ * and it's elevators, as JMX MXBeans and as Prometheus text served over
+ * http on localhost at /metrics.
+ * The counters bumped on every hall call are {@link LongAdder}, which
+ * stripe themselves across threads instead of contending on one value.
+ * Everything else is read from each elevator's {@link ElevatorSnapshot} and
+ * counters as they are collected, so collecting never locks a queue.
+ */
+public class MetricsRegistry {
+    public static final String          DOMAIN = "com.glbrimhall.elevator";
+
+    protected ElevatorSystem            system = null;
+    protected String                    name = "building";
+    protected LongAdder                 hallCalls = new LongAdder();
+    protected LongAdder                 dispatchNanos = new LongAdder();
+    protected List< ObjectName >        registered = new ArrayList< ObjectName >();
+    protected int                       registeredElevators;
+    protected boolean                   jmx = false;
+    protected HttpServer                server = null;
+
+    /** 
+     * @param system the system the metrics are of
+     */
+    public MetricsRegistry( ElevatorSystem system ) {
+        this.system = system;
+    }
+
+    /** 
+     * Returns the building name the metrics are labelled with.
+     */
+    public String getName() { return name; }
+
+    /** 
+     * Sets the building name the metrics are labelled with, which needs to
+     * happen before they are registered or served.
+     */
+    public synchronized boolean setName( String new_value ) {
+        if ( jmx || server != null ) {
+            return false;
+        }
+        name = new_value;
+        return true;
+    }
+
+    /** 
+     * Counts a hall call dispatched, and the nanoseconds the dispatch 
+     * strategy took to pick it's elevator.
+     */
+    public void dispatched( long nanos ) {
+        hallCalls.increment();
+        dispatchNanos.add( nanos );
+    }
+
+    /** 
+     * Returns the number of hall calls dispatched.
+     */
+    public long getHallCalls() { return hallCalls.sum(); }
+
+    /** 
+     * Returns the total nanoseconds the dispatch strategy took.
+     */
+    public long getDispatchNanos() { return dispatchNanos.sum(); }
+
+    /** 
+     * Registers the building's and each elevator's MXBean with the platform
+     * MBean server. Elevators started after are registered as they start.
+     * 
+     * @throws JMException if the building's name is already registered
+     */
+    public synchronized void register() throws JMException {
+        if ( jmx ) {
+            return;
+        }
+
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        ObjectName  building = new ObjectName( DOMAIN + ":type=Building,name=" + ObjectName.quote( name ) );
+
+        server.registerMBean( new Building(), building );
+        registered.add( building );
+        jmx = true;
+
+        registerElevators();
+    }
+
+    /** 
+     * Registers the MXBean of each elevator not registered yet, once the
+     * building is registered.
+     */
+    public synchronized void registerElevators() {
+        if ( ! jmx ) {
+            return;
+        }
+
+        MBeanServer         server = ManagementFactory.getPlatformMBeanServer();
+        List< Elevator >    elevators = system.getElevatorList();
+
+        for ( int i = registeredElevators; i < elevators.size(); ++i ) {
+            Elevator elevator = elevators.get( i );
+
+            try {
+                ObjectName car = new ObjectName( DOMAIN + ":type=Elevator,building=" + ObjectName.quote( name ) 
+                                                 + ",name=" + elevator.getIndex() );
+
+                server.registerMBean( new Car( elevator ), car );
+                registered.add( car );
+                ++registeredElevators;
+            } catch ( JMException ex ) {
+                Logger.getLogger( getClass().getName() ).log( Level.SEVERE, null, ex );
+                return;
+            }
+        }
+    }
+
+    /** 
+     * Serves the metrics as Prometheus text at http://localhost:port/metrics
+     * 
+     * @param port the port to listen on, 0 picks a free port
+     * @return the port listened on, or -1 if the metrics are already served
+     * @throws IOException if the port could not be opened
+     */
+    public synchronized int serve( int port ) throws IOException {
+        if ( server != null ) {
+            return -1;
+        }
+
+        server = HttpServer.create( new InetSocketAddress( InetAddress.getLoopbackAddress(), port ), 0 );
+        server.createContext( "/metrics", this::handle );
+        server.start();
+
+        return server.getAddress().getPort();
+    }
+
+    /** 
+     * Stops serving the metrics and unregisters the MXBeans.
+     */
+    public synchronized void stop() {
+        if ( server != null ) {
+            server.stop( 0 );
+            server = null;
+        }
+
+        MBeanServer mbeans = ManagementFactory.getPlatformMBeanServer();
+
+        for ( ObjectName bean: registered ) {
+            try {
+                mbeans.unregisterMBean( bean );
+            } catch ( JMException ex ) {
+            }
+        }
+        registered.clear();
+        registeredElevators = 0;
+        jmx = false;
+    }
+
+    protected void handle( HttpExchange exchange ) throws IOException {
+        StringBuilder   text = new StringBuilder( 4096 );
+
+        writePrometheus( text );
+
+        byte[]          body = text.toString().getBytes( StandardCharsets.UTF_8 );
+
+        exchange.getResponseHeaders().set( "Content-Type", "text/plain; version=0.0.4; charset=utf-8" );
+        exchange.sendResponseHeaders( 200, body.length );
+
+        try ( OutputStream out = exchange.getResponseBody() ) {
+            out.write( body );
+        }
+    }
+
+    /** 
+     * Appends the metrics in the Prometheus text format.
+     */
+    public void writePrometheus( StringBuilder out ) {
+        List< Elevator >    elevators = system.getElevatorList();
+        ElevatorSnapshot[]  snapshots = system.getSnapshots();
+        String              building = "building=\"" + name + "\"";
+
+        metric( out, "elevator_building_elevators", "gauge", "Number of elevators." );
+        sample( out, "elevator_building_elevators", building, elevators.size() );
+
+        metric( out, "elevator_building_hall_calls_total", "counter", "Hall calls dispatched to an elevator." );
+        sample( out, "elevator_building_hall_calls_total", building, getHallCalls() );
+
+        metric( out, "elevator_building_dispatch_seconds", "summary", "Time the dispatch strategy took to pick an elevator." );
+        sample( out, "elevator_building_dispatch_seconds_sum", building, getDispatchNanos() / 1e9 );
+        sample( out, "elevator_building_dispatch_seconds_count", building, getHallCalls() );
+
+        latency( out, "elevator_building_wait_seconds", "Time from a hall call until an elevator arrives.", 
+                 building, system.getWaitTimes() );
+        latency( out, "elevator_building_journey_seconds", "Time from a car call until the elevator arrives.", 
+                 building, system.getJourneyTimes() );
+
+        metric( out, "elevator_queue_depth", "gauge", "Stops queued in the elevator." );
+        for ( ElevatorSnapshot snapshot: snapshots ) {
+            sample( out, "elevator_queue_depth", car( building, snapshot.getIndex() ), snapshot.getPendingStops() );
+        }
+
+        metric( out, "elevator_floor", "gauge", "Floor the elevator is at." );
+        for ( ElevatorSnapshot snapshot: snapshots ) {
+            sample( out, "elevator_floor", car( building, snapshot.getIndex() ), snapshot.getCurrentFloor() );
+        }
+
+        metric( out, "elevator_moving", "gauge", "1 if the elevator is moving." );
+        for ( ElevatorSnapshot snapshot: snapshots ) {
+            sample( out, "elevator_moving", car( building, snapshot.getIndex() ), snapshot.isMoving() ? 1 : 0 );
+        }
+
+        metric( out, "elevator_in_maintenance", "gauge", "1 if the elevator is in maintenance." );
+        for ( ElevatorSnapshot snapshot: snapshots ) {
+            sample( out, "elevator_in_maintenance", car( building, snapshot.getIndex() ), snapshot.isInMaintenence() ? 1 : 0 );
+        }
+
+        metric( out, "elevator_floors_traversed_total", "counter", "Floors the elevator has traveled." );
+        for ( Elevator elevator: elevators ) {
+            sample( out, "elevator_floors_traversed_total", car( building, elevator.getIndex() ), elevator.getTraversedFloors() );
+        }
+
+        metric( out, "elevator_requests_total", "counter", "Requests the elevator has serviced." );
+        for ( Elevator elevator: elevators ) {
+            sample( out, "elevator_requests_total", car( building, elevator.getIndex() ), elevator.getNumRequests() );
+        }
+
+        metric( out, "elevator_idle_seconds_total", "counter", "Time the elevator has waited with an empty queue." );
+        for ( Elevator elevator: elevators ) {
+            sample( out, "elevator_idle_seconds_total", car( building, elevator.getIndex() ), elevator.getIdleMillis() / 1000.0 );
+        }
+    }
+
+    protected static String car( String building, int index ) {
+        return building + ",car=\"" + index + "\"";
+    }
+
+    protected static void metric( StringBuilder out, String metric, String type, String help ) {
+        out.append( "# HELP " ).append( metric ).append( ' ' ).append( help ).append( '\n' );
+        out.append( "# TYPE " ).append( metric ).append( ' ' ).append( type ).append( '\n' );
+    }
+
+    protected static void sample( StringBuilder out, String metric, String labels, long value ) {
+        out.append( metric ).append( '{' ).append( labels ).append( "} " ).append( value ).append( '\n' );
+    }
+
+    protected static void sample( StringBuilder out, String metric, String labels, double value ) {
+        out.append( metric ).append( '{' ).append( labels ).append( "} " ).append( value ).append( '\n' );
+    }
+
+    /** 
+     * Appends a {@link LatencyHistogram} of milliseconds as a summary in seconds.
+     */
+    protected static void latency( StringBuilder out, String metric, String help, 
+                                   String labels, LatencyHistogram histogram ) {
+        metric( out, metric, "summary", help );
+
+        for ( double quantile: new double[] { 0.5, 0.95, 0.99 } ) {
+            sample( out, metric, labels + ",quantile=\"" + quantile + "\"", 
+                    histogram.getPercentile( 100 * quantile ) / 1000.0 );
+        }
+        sample( out, metric + "_sum", labels, histogram.getMean() * histogram.getCount() / 1000.0 );
+        sample( out, metric + "_count", labels, histogram.getCount() );
+    }
+
+    /** 
+     * Car is the MXBean of an elevator.
+     */
+    public static class Car implements IElevatorMXBean {
+        protected final Elevator elevator;
+
+        public Car( Elevator elevator ) {
+            this.elevator = elevator;
+        }
+
+        @Override public int getFloor() { return elevator.getSnapshot().getCurrentFloor(); }
+        @Override public boolean isMoving() { return elevator.getSnapshot().isMoving(); }
+        @Override public boolean isInMaintenence() { return elevator.getSnapshot().isInMaintenence(); }
+        @Override public int getQueueDepth() { return elevator.getSnapshot().getPendingStops(); }
+        @Override public long getTraversedFloors() { return elevator.getTraversedFloors(); }
+        @Override public long getNumRequests() { return elevator.getNumRequests(); }
+        @Override public long getIdleMillis() { return elevator.getIdleMillis(); }
+    }
+
+    /** 
+     * Building is the MXBean of the system.
+     */
+    public class Building implements IBuildingMXBean {
+
+        @Override public int getElevators() { return system.getElevatorList().size(); }
+        @Override public int getFloors() { return system.getMaxFloors(); }
+
+        @Override
+        public int getElevatorsInMaintenence() {
+            int count = 0;
+
+            for ( ElevatorSnapshot snapshot: system.getSnapshots() ) {
+                if ( snapshot.isInMaintenence() ) { ++count; }
+            }
+            return count;
+        }
+
+        @Override
+        public int getQueueDepth() {
+            int depth = 0;
+
+            for ( ElevatorSnapshot snapshot: system.getSnapshots() ) {
+                depth += snapshot.getPendingStops();
+            }
+            return depth;
+        }
+
+        @Override
+        public long getTraversedFloors() {
+            long floors = 0;
+
+            for ( Elevator elevator: system.getElevatorList() ) {
+                floors += elevator.getTraversedFloors();
+            }
+            return floors;
+        }
+
+        @Override
+        public long getNumRequests() {
+            long requests = 0;
+
+            for ( Elevator elevator: system.getElevatorList() ) {
+                requests += elevator.getNumRequests();
+            }
+            return requests;
+        }
+
+        @Override public long getHallCalls() { return MetricsRegistry.this.getHallCalls(); }
+
+        @Override
+        public double getDispatchMeanMicros() {
+            long calls = MetricsRegistry.this.getHallCalls();
+
+            return calls == 0 ? 0 : getDispatchNanos() / 1000.0 / calls;
+        }
+
+        @Override public double getWaitMeanMillis() { return system.getWaitTimes().getMean(); }
+        @Override public long getWaitP99Millis() { return system.getWaitTimes().getPercentile( 99 ); }
+    }
+}
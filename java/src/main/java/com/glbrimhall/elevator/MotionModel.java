@@ -0,0 +1,155 @@
+/*
+ * Copyright (C) 2017 glbrimhall.com
+ *
+ * This file is part of an Elevator Simulator program written in java.
+ *
+ * Elevator Simulator program is free software: you can redistribute it and/or 
+ * modify it under the terms of the GNU General Public License as published
+ * by the Free Software Foundation, version 3 of the License.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.glbrimhall.elevator;
+
+/**
+ * The MotionModel holds the timing of a car: the milliseconds per floor at 
+ * it's rated speed, the milliseconds it takes to accelerate up to that speed
+ * ( and the same to decelerate back down ), the door open and close times and
+ * the time each passenger takes to get on or off. It is immutable so one 
+ * model can be shared by many cars.
+ * A trip too short to reach rated speed follows a triangular profile instead 
+ * of a trapezoidal one. Trip times are kept in a table by distance, so the 
+ * dispatcher's ETA calculation only does a lookup.
+ */
+public class MotionModel {
+    public final long           floorMillis;
+    public final long           accelMillis;
+    public final long           doorOpenMillis;
+    public final long           doorCloseMillis;
+    public final long           transferMillis;
+    protected final long[]      travelTable;
+    protected final long        stopMillis;
+
+    /** 
+     * The default model: 1.5 seconds per floor at rated speed, 2 seconds to
+     * get up to it, doors taking 2 seconds to open and 3 to close, and a 
+     * second for each passenger getting on or off.
+     */
+    public static final MotionModel STANDARD = new MotionModel( 1500, 2000, 2000, 3000, 1000 );
+
+    protected static final int  TABLE_FLOORS = 256;
+
+    /** 
+     * @param floorMillis the milliseconds per floor at rated speed
+     * @param accelMillis the milliseconds to accelerate up to rated speed
+     * @param doorOpenMillis the milliseconds the doors take to open
+     * @param doorCloseMillis the milliseconds the doors take to close
+     * @param transferMillis the milliseconds each passenger takes to get on or off
+     */
+    public MotionModel( long floorMillis, long accelMillis, long doorOpenMillis,
+                        long doorCloseMillis, long transferMillis ) {
+        this.floorMillis = Math.max( 0, floorMillis );
+        this.accelMillis = Math.max( 0, accelMillis );
+        this.doorOpenMillis = Math.max( 0, doorOpenMillis );
+        this.doorCloseMillis = Math.max( 0, doorCloseMillis );
+        this.transferMillis = Math.max( 0, transferMillis );
+        this.travelTable = new long[ TABLE_FLOORS ];
+
+        for ( int floors = 0; floors < TABLE_FLOORS; ++floors ) {
+            travelTable[ floors ] = computeTravelMillis( floors );
+        }
+
+        // Stopping on the way costs the deceleration and acceleration not 
+        // covered by running at rated speed, plus a door cycle.
+        this.stopMillis = this.accelMillis + dwellMillis( 1 );
+    }
+
+    /** 
+     * Parses a model, either "standard" or the five comma separated 
+     * milliseconds in the order of the constructor, ie 1500,2000,2000,3000,1000
+     * 
+     * @return the model, or null if the value could not be parsed
+     */
+    public static MotionModel parse( String value ) {
+        if ( value.equals( "standard" ) ) {
+            return STANDARD;
+        }
+
+        String[] fields = value.split( "," );
+
+        if ( fields.length != 5 ) {
+            return null;
+        }
+
+        long[] millis = new long[ fields.length ];
+
+        try {
+            for ( int i = 0; i < fields.length; ++i ) {
+                millis[ i ] = Long.parseLong( fields[ i ] );
+            }
+        } catch ( NumberFormatException ex ) {
+            return null;
+        }
+
+        return new MotionModel( millis[ 0 ], millis[ 1 ], millis[ 2 ], millis[ 3 ], millis[ 4 ] );
+    }
+
+    /** 
+     * Returns the milliseconds to travel a number of floors, from standing
+     * still to standing still.
+     */
+    public long travelMillis( int floors ) {
+        if ( floors < 0 ) { floors = -floors; }
+
+        if ( floors < TABLE_FLOORS ) {
+            return travelTable[ floors ];
+        }
+        return computeTravelMillis( floors );
+    }
+
+    /** 
+     * Returns the milliseconds the car stands at a floor: the doors opening,
+     * the passengers getting on and off, then the doors closing.
+     * 
+     * @param transfers the number of passengers getting on or off, at least 1
+     */
+    public long dwellMillis( int transfers ) {
+        return doorOpenMillis + Math.max( 1, transfers ) * transferMillis + doorCloseMillis;
+    }
+
+    /** 
+     * Returns the milliseconds each stop on the way adds to a trip.
+     */
+    public long stopMillis() { return stopMillis; }
+
+    /** 
+     * Works out a trip time. Accelerating up to rated speed covers
+     * accelMillis / ( 2 * floorMillis ) floors, as does slowing down again, 
+     * so a trip of at least accelMillis / floorMillis floors reaches rated 
+     * speed, and only loses accelMillis over running at it the whole way.
+     * A shorter trip accelerates half way then decelerates.
+     */
+    protected long computeTravelMillis( int floors ) {
+        if ( floors == 0 ) {
+            return 0;
+        }
+
+        if ( floorMillis == 0 || floors * floorMillis >= accelMillis ) {
+            return floors * floorMillis + accelMillis;
+        }
+
+        return Math.round( 2 * Math.sqrt( (double)floors * floorMillis * accelMillis ) );
+    }
+
+    @Override
+    public String toString() {
+        return floorMillis + "," + accelMillis + "," + doorOpenMillis + "," 
+             + doorCloseMillis + "," + transferMillis;
+    }
+}
@@ -0,0 +1,37 @@
+/*
+ * Copyright (C) 2017 glbrimhall.com
+ *
+ * This file is part of an Elevator Simulator program written in java.
+ *
+ * Elevator Simulator program is free software: you can redistribute it and/or 
+ * modify it under the terms of the GNU General Public License as published
+ * by the Free Software Foundation, version 3 of the License.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.glbrimhall.elevator;
+
+/**
+ * NearestCarDispatch sends a floor request to the elevator closest to it, as 
+ * measured by {@link ElevatorQueue#distanceToFloor(FloorRequest)}. It is the
+ * default {@link IDispatchStrategy}.
+ */
+public class NearestCarDispatch implements IDispatchStrategy {
+
+    @Override
+    public String getName() { return "nearest"; }
+
+    @Override
+    public int selectElevator( ElevatorSystem system, FloorRequest request, int destination ) {
+        // Current implementation of requestDistance will always return a value
+        // less than 2 * maxFloors.
+        return system.getDispatchIndex().nearestElevator( request, 
+                    system.getMaxFloors() * 2, system.getElevatorList() );
+    }
+}
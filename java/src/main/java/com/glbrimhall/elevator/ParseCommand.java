@@ -27,7 +27,7 @@ public class ParseCommand implements IParseCommand {
     protected Pattern compiledPattern = null;
     protected String helpString = null;
     protected char token;
-    protected static ElevatorSystem elevatorSystem;
+    protected ElevatorSystem elevatorSystem;
     protected static final String OK = "OK";
     
     /**
@@ -44,21 +44,35 @@ public class ParseCommand implements IParseCommand {
     }
 
     /**
-     * Returns the global ElevatorSystem instance used by the parsers
+     * Returns the ElevatorSystem instance the command runs on
      */
-    public static ElevatorSystem getElevatorSystem() {
+    public ElevatorSystem getElevatorSystem() {
         return elevatorSystem;
     }
 
     /**
-     * Sets the global ElevatorSystem instance used by the parsers
+     * Sets the ElevatorSystem instance the command runs on
      */
-    public static void setElevatorSystem(ElevatorSystem elevatorSystem) {
-        ParseCommand.elevatorSystem = elevatorSystem;
+    public void setElevatorSystem(ElevatorSystem elevatorSystem) {
+        this.elevatorSystem = elevatorSystem;
     }
 
     @Override
     public char getToken() { return token; }
+
+    @Override
+    public boolean isRemote() { return false; }
+
+    /**
+     * Appends the command's line of the help, see {@link ParseList#showHelp()}
+     */
+    public void appendHelp( StringBuilder help ) {
+        help.append( "   " );
+        help.append( compiledPattern.pattern() );
+        help.append( " - " );
+        help.append( helpString );
+        help.append( "\n" );
+    }
     
     @Override
     public String Parse( String cmd ) {
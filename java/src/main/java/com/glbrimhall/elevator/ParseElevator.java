@@ -21,7 +21,8 @@ import java.util.regex.*;
 
 /**
  * The ParseElevator class maps the "e[elevatorNum]f[floorButtonList]" 
- * user input to {@link Elevator#buttonPressed(int) 
+ * user input to a {@link CommandBatch} of car calls, queued like 
+ * {@link Elevator#buttonPressed(int) 
  * Elevator[elevatorNum].buttonPressed( floorButtonList ) }
  */
 public class ParseElevator extends ParseCommand {
@@ -30,6 +31,9 @@ public class ParseElevator extends ParseCommand {
         super( "e(\\d+)f([0-9,-]+)", "elevator <num> floorlist: example e2f2,4-6 means elevator 2 floor button 2, 4 through 6 pressed, note elevator is 1 based" );
     }
 
+    @Override
+    public boolean isRemote() { return true; }
+
     @Override
     public String Parse( String cmd ) {
         Matcher m = compiledPattern.matcher( cmd );
@@ -38,6 +42,7 @@ public class ParseElevator extends ParseCommand {
             int         elevatorNumber = Integer.parseInt( m.group( 1 ) ) - 1;
             Elevator    elevator = getElevatorSystem().getElevator( elevatorNumber );
             String[]    commaList = m.group( 2 ).split( "," );
+            CommandBatch batch = new CommandBatch( 4 );
             
             for( String floors: commaList ) {
                 String[] floorList = floors.split( "-" );
@@ -56,8 +61,11 @@ public class ParseElevator extends ParseCommand {
                 }
                 
                 for( ; startFloor <= endFloor; ++startFloor )
-                    elevator.buttonPressed( startFloor );
+                    batch.carCall( elevator.getIndex() - 1, startFloor );
                 }
+
+            // The whole list is queued under one lock of the elevator's queue.
+            getElevatorSystem().submit( batch );
             }
         return OK;
     }
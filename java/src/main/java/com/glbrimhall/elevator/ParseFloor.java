@@ -18,20 +18,25 @@
 package com.glbrimhall.elevator;
 
 import static com.glbrimhall.elevator.ParseCommand.OK;
-import static com.glbrimhall.elevator.ParseCommand.getElevatorSystem;
 import java.util.regex.Matcher;
 
 /**
  * The ParseFloor class maps the "f[floorNum][up|down]" 
  * user input to {@link ElevatorSystem#floorRequest(int,Movement) 
- * ElevatorSystem.floorRequest( floorNum, [up|down] ) }
+ * ElevatorSystem.floorRequest( floorNum, [up|down] ) }, and the
+ * "f[floorNum]t[destination]" input from a destination panel to
+ * {@link ElevatorSystem#destinationRequest(int,int) 
+ * ElevatorSystem.destinationRequest( floorNum, destination ) }
  */
 public class ParseFloor extends ParseCommand {
 
     public ParseFloor() {
-        super( "f(\\d+)(u|d)+", "floor <num> up or down: example f3u means floor 3 up" );
+        super( "f(\\d+)(u|d|t(\\d+))", "floor <num> up or down, or to a floor: example f3u means floor 3 up, f3t12 means floor 3 going to floor 12" );
     }
 
+    @Override
+    public boolean isRemote() { return true; }
+
     @Override
     public String Parse( String cmd ) {
         Matcher m = compiledPattern.matcher( cmd );
@@ -40,6 +45,11 @@ public class ParseFloor extends ParseCommand {
             int         floor = Integer.parseInt( m.group( 1 ) );
             String      upordown = m.group( 2 );
             Movement    direction = Movement.UP;
+
+            if ( m.group( 3 ) != null ) {
+                getElevatorSystem().destinationRequest( floor, Integer.parseInt( m.group( 3 ) ) );
+                continue;
+            }
             
             // Note we default to going up !
             if ( upordown.charAt( 0 ) == 'd' ) {
@@ -18,7 +18,6 @@
 package com.glbrimhall.elevator;
 
 import static com.glbrimhall.elevator.ParseCommand.OK;
-import static com.glbrimhall.elevator.ParseCommand.getElevatorSystem;
 import java.util.ArrayList;
 import java.util.Scanner;
 import java.util.regex.Matcher;
@@ -32,11 +31,13 @@ public class ParseList implements Runnable {
     protected ArrayList<ParseCommand>   parseList = null;
     protected Thread                    thread = null;
     protected Scanner                   input  = null;
+    protected ElevatorSystem            elevatorSystem = null;
+    protected ParseCommand[]            tokenTable = null;
+    protected CommandScanner            scanner = null;
+    protected volatile boolean          scanning = false;
     
     public ParseList( ElevatorSystem system ) {
-        ParseCommand.setElevatorSystem( system );
-       
-        input  = new Scanner( System.in );
+        elevatorSystem = system;
         parseList = new ArrayList<ParseCommand>();
         
         parseList.add( new ParseHelp() );
@@ -45,20 +46,55 @@ public class ParseList implements Runnable {
         parseList.add( new ParseNumberElevatorFloors() );
         parseList.add( new ParseElevator() );
         parseList.add( new ParseFloor() );
-        
-        thread = new Thread( this );
+        parseList.add( new ParseOption() );
+        parseList.add( new ParseMetrics() );
+        parseList.add( new ParseTrace() );
+
+        // Commands are found by their first character, the first command
+        // added for a token takes it, same as a search of the list.
+        tokenTable = new ParseCommand[ 256 ];
+
+        for( ParseCommand command: parseList ) {
+            command.setElevatorSystem( system );
+
+            if ( command.getToken() < tokenTable.length && tokenTable[ command.getToken() ] == null ) {
+                tokenTable[ command.getToken() ] = command;
+            }
+        }
+
+        scanner = new CommandScanner( system, tokenTable[ 'e' ], tokenTable[ 'f' ], tokenTable[ 'n' ] );
     }
 
     /** 
-     * Starts the parser's thread
+     * Indicates the elevator, floor and number of elevators commands are
+     * parsed by the {@link CommandScanner} instead of regex.
+     */
+    public boolean isScanning() { return scanning; }
+
+    /** 
+     * Switches the elevator, floor and number of elevators commands between 
+     * the {@link CommandScanner} and regex parsing.
+     */
+    public void setScanning( boolean new_value ) { scanning = new_value; }
+
+    /** 
+     * Starts the parser's thread reading commands from stdin. A parser 
+     * that is only called through {@link #Parse(String)} never opens stdin.
      */
-    public void start() { thread.start(); }
+    public void start() {
+        input  = new Scanner( System.in );
+        thread = new Thread( this );
+        thread.start();
+    }
     
     /** 
      * Shuts down the parser ( and its thread ). Should be called
      * by the master thread.
      */
     public void stop() throws InterruptedException {
+       if ( thread == null ) {
+           return;
+       }
        input.close();
        thread.interrupt();
        thread.join();
@@ -75,17 +111,53 @@ public class ParseList implements Runnable {
             return "";
         }
 
+        Journal journal = elevatorSystem.getJournal();
+
+        if ( journal != null ) {
+            journal.command( cmd );
+        }
+
         char cmdToken = cmd.charAt(0);
-        
-        for( ParseCommand command: parseList ) {
-            if ( cmdToken == command.getToken() ) {
-                return command.Parse( cmd );
+
+        if ( scanning ) {
+            String result = scanner.scan( cmd );
+
+            if ( result != null ) {
+                return result;
             }
         }
         
+        if ( cmdToken < tokenTable.length && tokenTable[ cmdToken ] != null ) {
+            return tokenTable[ cmdToken ].Parse( cmd );
+        }
+        
         return "Unknown command: " + cmd;
     }
 
+    /**
+     * Parses a command from a {@link CommandServer} connection, which can
+     * only make calls, see {@link IParseCommand#isRemote()}
+     * Options and commands such as quit are only taken from the console
+     * and command line, so a connection can't read or write files or stop 
+     * the system.
+     * @param cmd string input
+     * @return output from the Parser choosen.
+     */
+    public String ParseRemote( String cmd ) {
+
+        if ( cmd.isEmpty() ) { 
+            return "";
+        }
+
+        char cmdToken = cmd.charAt(0);
+
+        if ( cmd.startsWith( "--" ) || cmdToken >= tokenTable.length 
+             || tokenTable[ cmdToken ] == null || ! tokenTable[ cmdToken ].isRemote() ) {
+            return "Only calls are allowed: " + cmd;
+        }
+        return Parse( cmd );
+    }
+
     /**
      * Shows the info on available user commands
      */
@@ -97,11 +169,7 @@ public class ParseList implements Runnable {
         help.append( "   Available Commands:\n" );
     
         for( ParseCommand command: parseList ) {
-            help.append( "   " );
-            help.append( command.compiledPattern.pattern() );
-            help.append( " - " );
-            help.append( command.helpString );
-            help.append( "\n" );
+            command.appendHelp( help );
         }
         help.append( "\n" );
         
@@ -111,8 +179,6 @@ public class ParseList implements Runnable {
     @Override
     public void run()
     {
-        ElevatorSystem  elevatorSystem = ParseCommand.getElevatorSystem();
-
         try {
             while( elevatorSystem.isRunning() ) {
                 if ( input.hasNextLine() ) {
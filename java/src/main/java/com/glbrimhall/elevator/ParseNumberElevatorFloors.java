@@ -18,7 +18,6 @@
 package com.glbrimhall.elevator;
 
 import static com.glbrimhall.elevator.ParseCommand.OK;
-import static com.glbrimhall.elevator.ParseCommand.getElevatorSystem;
 import java.util.regex.Matcher;
 
 /**
@@ -0,0 +1,375 @@
+/*
+ * Copyright (C) 2017 glbrimhall.com
+ *
+ * This file is part of an Elevator Simulator program written in java.
+ *
+ * Elevator Simulator program is free software: you can redistribute it and/or 
+ * modify it under the terms of the GNU General Public License as published
+ * by the Free Software Foundation, version 3 of the License.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.glbrimhall.elevator;
+
+import static com.glbrimhall.elevator.ParseCommand.OK;
+import java.io.File;
+import java.io.IOException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.regex.Matcher;
+import javax.management.JMException;
+
+/**
+ * The ParseOption class maps the "--[option]=[value]" user input to the
+ * ElevatorSystem settings, such as {@link ElevatorSystem#setClock(ISimulationClock) 
+ * ElevatorSystem.setClock( [real|virtual] ) }
+ */
+public class ParseOption extends ParseCommand {
+
+    /**
+     * One --name=value option, with it's help line and the method that 
+     * sets it.
+     */
+    protected static class Option {
+        protected final String                      name;
+        protected final String                      values;
+        protected final String                      help;
+        protected final Function< String, String >  handler;
+
+        protected Option( String name, String values, String help, Function< String, String > handler ) {
+            this.name = name;
+            this.values = values;
+            this.help = help;
+            this.handler = handler;
+        }
+    }
+
+    protected final Map< String, Option > options = new LinkedHashMap< String, Option >();
+
+    public ParseOption() {
+        super( "--(\\w+)=(\\S+)", "option <name>=<value>, one of:" );
+
+        add( "clock", "real|virtual", "runs the elevators on real or simulated time, set before n<num>f<num>", 
+             this::parseClock );
+        add( "execution", "thread|pool", "runs each elevator on a thread of it's own or on a shared pool, set before n<num>f<num>", 
+             this::parseExecution );
+        add( "queue", "treeset|bitset", "queues floors in a treeset or a bitset, set before n<num>f<num>", 
+             this::parseQueue );
+        add( "dispatch", "nearest|zone|eta|destination", "picks elevators for floor requests", 
+             this::parseDispatch );
+        add( "listen", "<port>", "serves call commands on a localhost socket", 
+             this::parseListen );
+        add( "parser", "regex|scan", "parses e, f and n commands with regex or without", 
+             this::parseParser );
+        add( "dwell", "<seconds>", "keeps the doors open that long, set before n<num>f<num>", 
+             this::parseDwell );
+        add( "motion", "standard|none|<floor>,<accel>,<open>,<close>,<transfer>", "times the travel and doors of the cars in milliseconds, set before n<num>f<num>", 
+             this::parseMotion );
+        add( "journal", "<file>", "records the commands and elevator changes, restoring the elevators from it first if it has any, set before n<num>f<num>", 
+             this::parseJournal );
+        add( "snapshot", "<seconds>", "saves a snapshot beside the journal that often, which it is restored from", 
+             this::parseSnapshot );
+        add( "save", "<file>", "saves a snapshot", 
+             this::parseSave );
+        add( "restore", "<file>", "restores the elevators from a snapshot instead of n<num>f<num>", 
+             this::parseRestore );
+        add( "metrics", "<port>", "registers JMX MXBeans and serves Prometheus text at http://localhost:<port>/metrics", 
+             this::parseMetrics );
+        add( "trace", "<records>", "keeps that many of the latest dispatch choices, queue changes and door cycles for the trace command, 0 for none, set before n<num>f<num>", 
+             this::parseTrace );
+        add( "debug", "on|off", "dumps the trace at shutdown", 
+             this::parseDebug );
+        add( "parking", "predictive|none", "sends idle elevators to the floors the hall calls so far predict are busiest at this time of day", 
+             this::parseParking );
+    }
+
+    /** 
+     * Adds an option, listed in the help in the order added.
+     */
+    protected void add( String name, String values, String help, Function< String, String > handler ) {
+        options.put( name, new Option( name, values, help, handler ) );
+    }
+
+    /** 
+     * Options such as --save=, --restore= and --journal= read and write 
+     * files as the system's user, so they are only taken from the console 
+     * and command line, never from a {@link CommandServer} connection.
+     */
+    @Override
+    public boolean isRemote() { return false; }
+
+    /** 
+     * Appends a help line for each option under the command's own.
+     */
+    @Override
+    public void appendHelp( StringBuilder help ) {
+        super.appendHelp( help );
+
+        for ( Option option: options.values() ) {
+            help.append( "      --" ).append( option.name ).append( '=' ).append( option.values );
+            help.append( " - " ).append( option.help ).append( "\n" );
+        }
+    }
+
+    @Override
+    public String Parse( String cmd ) {
+        Matcher m = compiledPattern.matcher( cmd );
+
+        if ( ! m.find() ) {
+            return "Unknown option: " + cmd;
+        }
+
+        Option option = options.get( m.group( 1 ) );
+
+        if ( option == null ) {
+            return "Unknown option: " + m.group( 1 );
+        }
+        return option.handler.apply( m.group( 2 ) );
+    }
+
+    protected String parseClock( String value ) {
+        ISimulationClock clock = null;
+
+        if ( value.equals( "real" ) ) {
+            clock = new RealTimeClock();
+        }
+        else
+        if ( value.equals( "virtual" ) ) {
+            clock = new VirtualClock();
+        }
+        else {
+            return "Unknown clock: " + value + ", use real or virtual";
+        }
+
+        if ( ! getElevatorSystem().setClock( clock ) ) {
+            return "The clock must be set before the elevators are initialized";
+        }
+        return OK;
+    }
+
+    protected String parseExecution( String value ) {
+        boolean threadPerElevator;
+
+        if ( value.equals( "thread" ) ) {
+            threadPerElevator = true;
+        }
+        else
+        if ( value.equals( "pool" ) ) {
+            threadPerElevator = false;
+        }
+        else {
+            return "Unknown execution: " + value + ", use thread or pool";
+        }
+
+        if ( ! getElevatorSystem().setThreadPerElevator( threadPerElevator ) ) {
+            return "The execution must be set before the elevators are initialized";
+        }
+        return OK;
+    }
+
+    protected String parseQueue( String value ) {
+        boolean bitSetQueue;
+
+        if ( value.equals( "treeset" ) ) {
+            bitSetQueue = false;
+        }
+        else
+        if ( value.equals( "bitset" ) ) {
+            bitSetQueue = true;
+        }
+        else {
+            return "Unknown queue: " + value + ", use treeset or bitset";
+        }
+
+        if ( ! getElevatorSystem().setBitSetQueue( bitSetQueue ) ) {
+            return "The queue must be set before the elevators are initialized";
+        }
+        return OK;
+    }
+
+    protected String parseDispatch( String value ) {
+        IDispatchStrategy strategy = ElevatorSystem.newDispatchStrategy( value );
+
+        if ( strategy == null ) {
+            return "Unknown dispatch: " + value + ", use nearest, zone, eta or destination";
+        }
+
+        getElevatorSystem().setDispatchStrategy( strategy );
+        return OK;
+    }
+
+    protected String parseListen( String value ) {
+        try {
+            int port = getElevatorSystem().listen( Integer.parseInt( value ) );
+
+            if ( port < 0 ) {
+                return "The system is already listening";
+            }
+            return OK;
+        } catch ( NumberFormatException ex ) {
+            return "Unknown port: " + value;
+        } catch ( IOException ex ) {
+            return "Could not listen on " + value + ": " + ex.getMessage();
+        }
+    }
+
+    protected String parseParser( String value ) {
+        if ( value.equals( "regex" ) ) {
+            getElevatorSystem().getParser().setScanning( false );
+        }
+        else
+        if ( value.equals( "scan" ) ) {
+            getElevatorSystem().getParser().setScanning( true );
+        }
+        else {
+            return "Unknown parser: " + value + ", use regex or scan";
+        }
+        return OK;
+    }
+
+    protected String parseDwell( String value ) {
+        try {
+            if ( ! getElevatorSystem().setDoorOpenWaitSeconds( Integer.parseInt( value ) ) ) {
+                return "The dwell must be at least 1 second, set before the elevators are initialized";
+            }
+            return OK;
+        } catch ( NumberFormatException ex ) {
+            return "Unknown dwell: " + value;
+        }
+    }
+
+    protected String parseMotion( String value ) {
+        MotionModel model = null;
+
+        if ( ! value.equals( "none" ) ) {
+            model = MotionModel.parse( value );
+
+            if ( model == null ) {
+                return "Unknown motion: " + value + ", use standard, none or <floor>,<accel>,<open>,<close>,<transfer> milliseconds";
+            }
+        }
+
+        if ( ! getElevatorSystem().setMotionModel( model ) ) {
+            return "The motion must be set before the elevators are initialized";
+        }
+        return OK;
+    }
+
+    protected String parseJournal( String value ) {
+        try {
+            if ( ! getElevatorSystem().openJournal( new File( value ) ) ) {
+                return "The journal must be opened before the elevators are initialized";
+            }
+            return OK;
+        } catch ( IOException ex ) {
+            return "Could not open journal " + value + ": " + ex.getMessage();
+        }
+    }
+
+    protected String parseSnapshot( String value ) {
+        try {
+            if ( ! getElevatorSystem().setSnapshotSeconds( Integer.parseInt( value ) ) ) {
+                return "The snapshot seconds can't be negative, or change once snapshots are being saved";
+            }
+            return OK;
+        } catch ( NumberFormatException ex ) {
+            return "Unknown snapshot seconds: " + value;
+        }
+    }
+
+    /** 
+     * Saves a snapshot to any file the system's user can write, see {@link #isRemote()}
+     */
+    protected String parseSave( String value ) {
+        if ( ! getElevatorSystem().saveSnapshot( new File( value ) ) ) {
+            return "Could not save the snapshot " + value;
+        }
+        return OK;
+    }
+
+    /** 
+     * Restores from any file the system's user can read, see {@link #isRemote()}
+     */
+    protected String parseRestore( String value ) {
+        try {
+            if ( ! getElevatorSystem().restoreSnapshot( new File( value ) ) ) {
+                return "The snapshot must be restored before the elevators are initialized";
+            }
+            return OK;
+        } catch ( IOException ex ) {
+            return "Could not restore snapshot " + value + ": " + ex.getMessage();
+        }
+    }
+
+    protected String parseMetrics( String value ) {
+        MetricsRegistry registry = getElevatorSystem().getMetricsRegistry();
+
+        try {
+            if ( registry.serve( Integer.parseInt( value ) ) < 0 ) {
+                return "The metrics are already served";
+            }
+            registry.register();
+            return OK;
+        } catch ( NumberFormatException ex ) {
+            return "Unknown port: " + value;
+        } catch ( IOException ex ) {
+            return "Could not serve metrics on " + value + ": " + ex.getMessage();
+        } catch ( JMException ex ) {
+            registry.stop();
+            return "Could not register the metrics MXBeans: " + ex.getMessage();
+        }
+    }
+
+    protected String parseTrace( String value ) {
+        try {
+            int             records = Integer.parseInt( value );
+            FlightRecorder  recorder = records > 0 ? new FlightRecorder( records ) : null;
+
+            if ( records < 0 ) {
+                return "Unknown trace records: " + value;
+            }
+            if ( ! getElevatorSystem().setFlightRecorder( recorder ) ) {
+                return "The trace must be set before the elevators are initialized";
+            }
+            return OK;
+        } catch ( NumberFormatException ex ) {
+            return "Unknown trace records: " + value;
+        }
+    }
+
+    protected String parseDebug( String value ) {
+        if ( value.equals( "on" ) ) {
+            getElevatorSystem().setDebugging( true );
+        }
+        else
+        if ( value.equals( "off" ) ) {
+            getElevatorSystem().setDebugging( false );
+        }
+        else {
+            return "Unknown debug: " + value + ", use on or off";
+        }
+        return OK;
+    }
+
+    protected String parseParking( String value ) {
+        IParkingStrategy strategy = null;
+
+        if ( ! value.equals( "none" ) ) {
+            strategy = getElevatorSystem().newParkingStrategy( value );
+
+            if ( strategy == null ) {
+                return "Unknown parking: " + value + ", use predictive or none";
+            }
+        }
+
+        getElevatorSystem().setParkingStrategy( strategy );
+        return OK;
+    }
+}
@@ -21,7 +21,8 @@ import static com.glbrimhall.elevator.ParseCommand.OK;
 
 /**
  * The ParseStatus class maps the "status" user input to 
- * {@link ElevatorSystem#reportStatus() }
+ * {@link ElevatorSystem#reportStatus(boolean) ElevatorSystem.reportStatus( true ) },
+ * reporting every elevator.
  */
 public class ParseStatus extends ParseCommand {
 
@@ -32,7 +33,7 @@ public class ParseStatus extends ParseCommand {
     @Override
     public String Parse( String cmd ) {
 
-        elevatorSystem.reportStatus();
+        elevatorSystem.reportStatus( true );
 
         return OK;
     }
@@ -0,0 +1,198 @@
+/*
+ * Copyright (C) 2017 glbrimhall.com
+ *
+ * This file is part of an Elevator Simulator program written in java.
+ *
+ * Elevator Simulator program is free software: you can redistribute it and/or 
+ * modify it under the terms of the GNU General Public License as published
+ * by the Free Software Foundation, version 3 of the License.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.glbrimhall.elevator;
+
+import java.util.Arrays;
+
+/**
+ * PredictiveParking sends an elevator with nothing queued towards the calls
+ * it's system's {@link DemandModel} predicts at this time of day, such as 
+ * to the lobby at the morning up peak. It weighs the hottest floors and the
+ * floor the elevator is at by the predicted calls times the floors to reach
+ * them. A call closer to another idle elevator, or one parking with nothing
+ * else queued, is counted at that elevator's distance instead, so the idle 
+ * elevators spread out over the building instead of all heading to the 
+ * same floor.
+ * <p>
+ * The elevator can't answer a call going the other way until it gets to 
+ * where it parks, so it only goes if the floors saved for it's next 
+ * PARKED_CALLS calls are more than the floors it travels to get there.
+ */
+public class PredictiveParking implements IParkingStrategy {
+    public static final double      MIN_CALLS = 4.0;
+    public static final int         HOT_FLOORS = 8;
+    public static final double      PARKED_CALLS = 2.0;
+    public static final long        PARKING_DELAY_MILLIS = 30000;
+
+    protected ElevatorSystem        system = null;
+    protected int[]                 targets = null;
+    protected double[]              calls = null;
+    protected double                totalCalls;
+    protected int[]                 nearest = null;
+    protected int[]                 candidates = new int[ HOT_FLOORS ];
+
+    /** 
+     * @param system the ElevatorSystem with the elevators and demand model
+     */
+    public PredictiveParking( ElevatorSystem system ) {
+        this.system = system;
+    }
+
+    @Override
+    public String getName() { return "predictive"; }
+
+    @Override
+    public long getParkingDelayMillis() { return PARKING_DELAY_MILLIS; }
+
+    @Override
+    public synchronized FloorRequest selectParking( Elevator elevator ) {
+        DemandModel     model = system.getDemandModel();
+        DispatchIndex   index = system.getDispatchIndex();
+        int             self = elevator.getIndex() - 1;
+
+        if ( model == null || self < 0 || self >= index.size() ) {
+            return null;
+        }
+
+        if ( targets == null || targets.length != index.size() ) {
+            targets = new int[ index.size() ];
+        }
+        targets[ self ] = -1;
+
+        if ( ! predict( model, system.getClock().currentMillis() ) ) {
+            return null;
+        }
+
+        coverCalls( index, self );
+
+        // Keeps the HOT_FLOORS hottest slots, hottest first.
+        int     hot = 0;
+        int     floor = elevator.getCurrentFloor();
+        int     best = -1;
+        double  stayCost = cost( floor );
+        double  bestSaving = 0.0;
+
+        for ( int slot = 0; slot < calls.length; ++slot ) {
+            if ( calls[ slot ] <= 0.0 || ( hot == HOT_FLOORS && calls[ candidates[ hot - 1 ] ] >= calls[ slot ] ) ) {
+                continue;
+            }
+
+            int at = hot < HOT_FLOORS ? hot++ : hot - 1;
+
+            while ( at > 0 && calls[ candidates[ at - 1 ] ] < calls[ slot ] ) {
+                candidates[ at ] = candidates[ at - 1 ];
+                --at;
+            }
+            candidates[ at ] = slot;
+        }
+
+        for ( int i = 0; i < hot; ++i ) {
+            int     target = candidates[ i ] / 2;
+            double  saving = PARKED_CALLS * ( stayCost - cost( target ) ) / totalCalls
+                           - Math.abs( target - floor );
+
+            if ( saving > bestSaving ) {
+                best = candidates[ i ];
+                bestSaving = saving;
+            }
+        }
+
+        if ( best < 0 ) {
+            return null;
+        }
+
+        targets[ self ] = best / 2;
+        return system.getFloorRequests().get( best / 2, best % 2 == 0 ? Movement.UP : Movement.DOWN );
+    }
+
+    /** 
+     * Reads the predicted calls of every slot.
+     * 
+     * @return false if too few calls are predicted to go by
+     */
+    protected boolean predict( DemandModel model, long now ) {
+        totalCalls = 0.0;
+
+        if ( calls == null || calls.length != model.getSlots() ) {
+            calls = new double[ model.getSlots() ];
+            nearest = new int[ model.getSlots() / 2 ];
+        }
+
+        for ( int slot = 0; slot < calls.length; ++slot ) {
+            calls[ slot ] = model.predict( slot, now );
+            totalCalls += calls[ slot ];
+        }
+        return totalCalls >= MIN_CALLS;
+    }
+
+    /** 
+     * Sets the floors from each floor to the nearest other elevator waiting
+     * or parking, or Integer.MAX_VALUE if there is none.
+     */
+    protected void coverCalls( DispatchIndex index, int self ) {
+        Arrays.fill( nearest, Integer.MAX_VALUE );
+
+        for ( int other = 0; other < index.size(); ++other ) {
+            long summary = index.getSummary( other );
+
+            if ( other == self || DispatchIndex.isInMaintenence( summary ) ) {
+                continue;
+            }
+
+            if ( DispatchIndex.isEmpty( summary ) ) {
+                cover( DispatchIndex.getFloor( summary ) );
+            }
+            else
+            if ( targets[ other ] >= 0 && DispatchIndex.getStops( summary ) == 1 ) {
+                cover( targets[ other ] );
+            }
+        }
+
+        // Spread from the covered floors up then down, instead of measuring
+        // every floor from every elevator.
+        for ( int floor = 1; floor < nearest.length; ++floor ) {
+            if ( nearest[ floor - 1 ] != Integer.MAX_VALUE ) {
+                nearest[ floor ] = Math.min( nearest[ floor ], nearest[ floor - 1 ] + 1 );
+            }
+        }
+        for ( int floor = nearest.length - 2; floor >= 0; --floor ) {
+            if ( nearest[ floor + 1 ] != Integer.MAX_VALUE ) {
+                nearest[ floor ] = Math.min( nearest[ floor ], nearest[ floor + 1 ] + 1 );
+            }
+        }
+    }
+
+    protected void cover( int floor ) {
+        if ( floor >= 0 && floor < nearest.length ) {
+            nearest[ floor ] = 0;
+        }
+    }
+
+    /** 
+     * Returns the predicted calls times the floors to reach them, from an
+     * elevator parked at a floor or the nearest other idle elevator.
+     */
+    protected double cost( int floor ) {
+        double cost = 0.0;
+
+        for ( int slot = 0; slot < calls.length; ++slot ) {
+            cost += calls[ slot ] * Math.min( nearest[ slot / 2 ], Math.abs( slot / 2 - floor ) );
+        }
+        return cost;
+    }
+}
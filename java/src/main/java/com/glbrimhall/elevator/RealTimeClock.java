@@ -0,0 +1,112 @@
+/*
+ * Copyright (C) 2017 glbrimhall.com
+ *
+ * This file is part of an Elevator Simulator program written in java.
+ *
+ * Elevator Simulator program is free software: you can redistribute it and/or 
+ * modify it under the terms of the GNU General Public License as published
+ * by the Free Software Foundation, version 3 of the License.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.glbrimhall.elevator;
+
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * The RealTimeClock is the {@link ISimulationClock} running on the wall clock,
+ * as used by the interactive console. Scheduled events run on a small pool
+ * shared by all the event driven elevators.
+ */
+public class RealTimeClock implements ISimulationClock {
+    protected volatile ScheduledExecutorService scheduler = null;
+    protected int                       poolSize;
+
+    /** 
+     * Creates a clock with a scheduler pool of one thread per cpu.
+     */
+    public RealTimeClock() {
+        this( Runtime.getRuntime().availableProcessors() );
+    }
+
+    /** 
+     * @param poolSize the number of threads running scheduled events
+     */
+    public RealTimeClock( int poolSize ) {
+        this.poolSize = Math.max( 1, poolSize );
+    }
+
+    /** 
+     * @param scheduler the executor running the scheduled events, eg a 
+     *                  single thread shared by a shard of buildings.
+     */
+    public RealTimeClock( ScheduledExecutorService scheduler ) {
+        this.poolSize = 1;
+        this.scheduler = scheduler;
+    }
+
+    @Override
+    public long currentMillis() { return System.currentTimeMillis(); }
+
+    @Override
+    public void sleepSeconds( String className, int seconds ) {
+        ElevatorSystem.sleepSeconds( className, seconds );
+    }
+
+    @Override
+    public void sleepMillis( String className, long millis ) {
+        if ( millis <= 0 ) { return; }
+        try {
+            Thread.sleep( millis );
+        } catch (InterruptedException ex) {
+            Logger.getLogger(className).log(Level.SEVERE, null, ex);
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    @Override
+    public void schedule( long delayMillis, Runnable event ) {
+        getScheduler().schedule( event, delayMillis, TimeUnit.MILLISECONDS );
+    }
+
+    @Override
+    public boolean isVirtual() { return false; }
+
+    /** 
+     * Returns the executor running the scheduled events, which is only
+     * created once the first event is scheduled. The lock is only taken
+     * until then.
+     */
+    protected ScheduledExecutorService getScheduler() {
+        ScheduledExecutorService current = scheduler;
+
+        if ( current != null ) {
+            return current;
+        }
+
+        synchronized ( this ) {
+            if ( scheduler == null ) {
+                scheduler = new ScheduledThreadPoolExecutor( poolSize, new ThreadFactory() {
+                    @Override
+                    public Thread newThread( Runnable r ) {
+                        Thread thread = new Thread( r, "RealTimeClock" );
+                        thread.setDaemon( true );
+                        return thread;
+                    }
+                } );
+            }
+            return scheduler;
+        }
+    }
+}
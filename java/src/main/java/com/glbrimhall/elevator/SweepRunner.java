@@ -0,0 +1,246 @@
+/*
+ * Copyright (C) 2017 glbrimhall.com
+ *
+ * This file is part of an Elevator Simulator program written in java.
+ *
+ * Elevator Simulator program is free software: you can redistribute it and/or 
+ * modify it under the terms of the GNU General Public License as published
+ * by the Free Software Foundation, version 3 of the License.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.glbrimhall.elevator;
+
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * SweepRunner runs a building under {@link LoadGenerator} traffic for every
+ * combination of elevators, floors, traffic profile and door dwell, to
+ * choose the elevators for a building. Each run is an independent 
+ * {@link ElevatorSystem} on it's own {@link VirtualClock}, and the runs are
+ * spread over a ForkJoinPool with one thread per cpu. The results are 
+ * written as one CSV, a row per run in the order of the combinations.
+ */
+public class SweepRunner {
+    public static final String  CSV_HEADER = "elevators,floors,profile,dwell_seconds,passengers,boarded,"
+                                             + "wait_avg_ms,wait_p95_ms,journey_avg_ms,journey_p95_ms,"
+                                             + "floors_traversed,requests,simulated_seconds";
+
+    protected int[]             elevators = { 4 };
+    protected int[]             floors = { 20 };
+    protected LoadGenerator.Profile[] profiles = { LoadGenerator.Profile.UP_PEAK };
+    protected int[]             dwellSeconds = { 3 };
+    protected double            passengersPerMinute = 30;
+    protected double            minutes = 60;
+    protected long              seed = 1;
+    protected List< String >    options = new ArrayList< String >();
+
+    /**
+     * One simulation of the sweep, which keeps it's results for the CSV.
+     */
+    protected static class Run extends RecursiveAction {
+        private static final long               serialVersionUID = 1L;
+        protected final SweepRunner             sweep;
+        protected final int                     numElevators;
+        protected final int                     numFloors;
+        protected final LoadGenerator.Profile   profile;
+        protected final int                     dwell;
+        protected String                        row;
+
+        protected Run( SweepRunner sweep, int numElevators, int numFloors, 
+                       LoadGenerator.Profile profile, int dwell ) {
+            this.sweep = sweep;
+            this.numElevators = numElevators;
+            this.numFloors = numFloors;
+            this.profile = profile;
+            this.dwell = dwell;
+        }
+
+        @Override
+        protected void compute() {
+            ElevatorSystem  system = new ElevatorSystem();
+            VirtualClock    clock = new VirtualClock();
+
+            system.setClock( clock );
+            system.setDoorOpenWaitSeconds( dwell );
+
+            for ( String option: sweep.options ) {
+                system.getParser().Parse( option );
+            }
+
+            system.initialize( numElevators, numFloors );
+
+            LoadGenerator generator = new LoadGenerator( system, profile, sweep.passengersPerMinute, sweep.seed );
+
+            generator.start( (long) ( 60000 * sweep.minutes ) );
+            clock.advanceUntilIdle();
+
+            long traversed = 0;
+            long requests = 0;
+
+            for ( Elevator elevator: system.getElevatorList() ) {
+                traversed += elevator.getTraversedFloors();
+                requests += elevator.getNumRequests();
+            }
+
+            row = String.format( Locale.ROOT, "%d,%d,%s,%d,%d,%d,%.1f,%d,%.1f,%d,%d,%d,%.1f",
+                                 numElevators, numFloors, profile, dwell, 
+                                 generator.getPassengers(), generator.getBoarded(),
+                                 system.getWaitTimes().getMean(), system.getWaitTimes().getPercentile( 95 ),
+                                 system.getJourneyTimes().getMean(), system.getJourneyTimes().getPercentile( 95 ),
+                                 traversed, requests, clock.currentMillis() / 1000.0 );
+        }
+    }
+
+    public void setElevators( int[] new_value ) { elevators = new_value; }
+
+    public void setFloors( int[] new_value ) { floors = new_value; }
+
+    public void setProfiles( LoadGenerator.Profile[] new_value ) { profiles = new_value; }
+
+    public void setDwellSeconds( int[] new_value ) { dwellSeconds = new_value; }
+
+    public void setPassengersPerMinute( double new_value ) { passengersPerMinute = new_value; }
+
+    public void setMinutes( double new_value ) { minutes = new_value; }
+
+    public void setSeed( long new_value ) { seed = new_value; }
+
+    /** 
+     * Adds a console option, such as --dispatch=eta, given to every run.
+     */
+    public void addOption( String option ) { options.add( option ); }
+
+    /** 
+     * Runs every combination on a pool, and writes the CSV once they are done.
+     * 
+     * @param parallelism the number of runs at a time
+     * @param csv where the header and a row per run are written
+     * @return the number of runs
+     */
+    public int run( int parallelism, Writer csv ) throws IOException {
+        List< Run > runs = new ArrayList< Run >();
+
+        for ( int numElevators: elevators ) {
+            for ( int numFloors: floors ) {
+                for ( LoadGenerator.Profile profile: profiles ) {
+                    for ( int dwell: dwellSeconds ) {
+                        runs.add( new Run( this, numElevators, numFloors, profile, dwell ) );
+                    }
+                }
+            }
+        }
+
+        ForkJoinPool pool = new ForkJoinPool( Math.max( 1, parallelism ) );
+
+        try {
+            for ( Run run: runs ) {
+                pool.execute( run );
+            }
+            for ( Run run: runs ) {
+                run.join();
+            }
+        }
+        finally {
+            pool.shutdown();
+        }
+
+        PrintWriter out = new PrintWriter( csv );
+
+        out.println( CSV_HEADER );
+
+        for ( Run run: runs ) {
+            out.println( run.row );
+        }
+        out.flush();
+        return runs.size();
+    }
+
+    protected static int[] parseInts( String value ) {
+        String[]    list = value.split( "," );
+        int[]       ints = new int[ list.length ];
+
+        for ( int i = 0; i < list.length; ++i ) {
+            ints[ i ] = Integer.parseInt( list[ i ] );
+        }
+        return ints;
+    }
+
+    /**
+     * Runs a sweep given as options, eg --elevators=2,4,6 --floors=20,40 
+     * --profiles=up,lunch --dwell=2,3 --rate=30 --minutes=60 --seed=1 
+     * --out=sweep.csv. Any other option, eg --dispatch=eta, is given to 
+     * every run. Without --out the CSV is printed, ahead of the line
+     * summing up the sweep.
+     */
+    public static void main( String[] args ) throws IOException {
+        SweepRunner sweep = new SweepRunner();
+        String      out = null;
+        int         parallelism = Runtime.getRuntime().availableProcessors();
+
+        for ( String arg: args ) {
+            int     split = arg.indexOf( '=' );
+            String  name = split < 0 ? arg : arg.substring( 0, split );
+            String  value = split < 0 ? "" : arg.substring( split + 1 );
+
+            if ( name.equals( "--elevators" ) ) { sweep.setElevators( parseInts( value ) ); }
+            else if ( name.equals( "--floors" ) ) { sweep.setFloors( parseInts( value ) ); }
+            else if ( name.equals( "--dwell" ) ) { sweep.setDwellSeconds( parseInts( value ) ); }
+            else if ( name.equals( "--rate" ) ) { sweep.setPassengersPerMinute( Double.parseDouble( value ) ); }
+            else if ( name.equals( "--minutes" ) ) { sweep.setMinutes( Double.parseDouble( value ) ); }
+            else if ( name.equals( "--seed" ) ) { sweep.setSeed( Long.parseLong( value ) ); }
+            else if ( name.equals( "--threads" ) ) { parallelism = Integer.parseInt( value ); }
+            else if ( name.equals( "--out" ) ) { out = value; }
+            else if ( name.equals( "--profiles" ) ) {
+                String[]                names = value.split( "," );
+                LoadGenerator.Profile[] profiles = new LoadGenerator.Profile[ names.length ];
+
+                for ( int i = 0; i < names.length; ++i ) {
+                    profiles[ i ] = LoadGenerator.Profile.forName( names[ i ] );
+
+                    if ( profiles[ i ] == null ) {
+                        System.out.println( "Unknown profile: " + names[ i ] + ", use up, down, lunch or interfloor" );
+                        return;
+                    }
+                }
+                sweep.setProfiles( profiles );
+            }
+            else {
+                sweep.addOption( arg );
+            }
+        }
+
+        long    started = System.currentTimeMillis();
+        Writer  csv = out == null ? new OutputStreamWriter( System.out, StandardCharsets.UTF_8 )
+                                  : new OutputStreamWriter( new FileOutputStream( out ), StandardCharsets.UTF_8 );
+        int     runs;
+
+        try {
+            runs = sweep.run( parallelism, csv );
+        }
+        finally {
+            if ( out != null ) {
+                csv.close();
+            }
+        }
+
+        System.out.format( "Swept %d runs on %d threads in %d ms.\n", runs, parallelism, 
+                           System.currentTimeMillis() - started );
+    }
+}
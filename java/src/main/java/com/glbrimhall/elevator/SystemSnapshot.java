@@ -0,0 +1,220 @@
+/*
+ * Copyright (C) 2017 glbrimhall.com
+ *
+ * This file is part of an Elevator Simulator program written in java.
+ *
+ * Elevator Simulator program is free software: you can redistribute it and/or 
+ * modify it under the terms of the GNU General Public License as published
+ * by the Free Software Foundation, version 3 of the License.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.glbrimhall.elevator;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+
+/**
+ * The SystemSnapshot saves the state of every elevator in an {@link ElevatorSystem}
+ * to a compact binary file, and restores it, so a large building resumes 
+ * without replaying every command that built it up.
+ * The file starts with it's magic number, version, the number of elevators 
+ * and floors and the simulation time. Each elevator follows in order: a byte
+ * of flags for maintenence and the direction being serviced, the floor being 
+ * serviced, the floors traveled and requests serviced, the {@link Journal}
+ * offset the state was cut at and the floors queued, each as floor * 2 plus 
+ * 1 for DOWN.
+ * Each elevator is read with it's queue's lock held, where it's counters 
+ * and journal records also change, so restoring a snapshot then replaying 
+ * each elevator's journal records after it's cut gives back the same state,
+ * without stopping the elevators to take the snapshot.
+ * It is loaded straight from the mapped file, without copying it in first.
+ */
+public class SystemSnapshot {
+    public static final int     MAGIC = 0x454C5653;
+    public static final int     VERSION = 1;
+    protected static final int  HEADER_BYTES = 24;
+    protected static final byte MAINTENENCE = 1;
+    protected static final byte SERVICING_DOWN = 2;
+
+    protected File              file = null;
+    protected int[]             cuts = new int[ 0 ];
+    protected long              millis;
+
+    /** 
+     * @param file the snapshot file
+     */
+    public SystemSnapshot( File file ) {
+        this.file = file;
+    }
+
+    /** 
+     * Returns the snapshot file.
+     */
+    public File getFile() { return file; }
+
+    /** 
+     * Returns the offset in the journal each elevator's state was cut at,
+     * as saved or loaded.
+     */
+    public int[] getJournalCuts() { return cuts; }
+
+    /** 
+     * Returns the simulation time the snapshot was saved at.
+     */
+    public long getMillis() { return millis; }
+
+    /** 
+     * Saves the elevators of a system while they run. The file is written
+     * beside it then renamed over it, so a crash leaves the last snapshot.
+     * 
+     * @param system the initialized system
+     * @throws IOException if the file could not be written
+     */
+    public void save( ElevatorSystem system ) throws IOException {
+        List< Elevator >    elevators = system.getElevatorList();
+        Journal             journal = system.getJournal();
+        ByteBuffer          buffer = ByteBuffer.allocate( HEADER_BYTES + 64 * elevators.size() );
+
+        millis = system.getClock().currentMillis();
+        cuts = new int[ elevators.size() ];
+
+        buffer.putInt( MAGIC ).putInt( VERSION ).putInt( elevators.size() )
+              .putInt( system.getMaxFloors() ).putLong( millis );
+
+        for ( int i = 0; i < elevators.size(); ++i ) {
+            Elevator        elevator = elevators.get( i );
+            ElevatorQueue   queue = elevator.getQueue();
+
+            synchronized ( queue ) {
+                FloorRequest[]  stops = queue.toArray();
+                FloorRequest    servicing = queue.getServicing();
+                byte            flags = 0;
+
+                if ( elevator.isInMaintenence() ) { flags |= MAINTENENCE; }
+                if ( servicing.direction == Movement.DOWN ) { flags |= SERVICING_DOWN; }
+
+                cuts[ i ] = journal == null ? 0 : journal.getAppendPosition();
+                buffer = ensure( buffer, 29 + 4 * stops.length );
+
+                buffer.put( flags ).putInt( servicing.floor )
+                      .putLong( elevator.getTraversedFloors() ).putLong( elevator.getNumRequests() )
+                      .putInt( cuts[ i ] ).putInt( stops.length );
+
+                for ( FloorRequest stop: stops ) {
+                    buffer.putInt( 2 * stop.floor + ( stop.direction == Movement.DOWN ? 1 : 0 ) );
+                }
+            }
+        }
+
+        buffer.flip();
+
+        File written = new File( file.getPath() + ".tmp" );
+
+        try ( FileChannel channel = FileChannel.open( written.toPath(), StandardOpenOption.CREATE,
+                                                      StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING ) ) {
+            while ( buffer.hasRemaining() ) {
+                channel.write( buffer );
+            }
+            channel.force( true );
+        }
+
+        Files.move( written.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING, 
+                    StandardCopyOption.ATOMIC_MOVE );
+    }
+
+    /** 
+     * Creates the elevators of a system from the snapshot, without starting 
+     * them, so the journal can be replayed after each elevator's cut.
+     * 
+     * @param system a system that is not initialized yet
+     * @throws IOException if the file could not be read, or is not a snapshot
+     */
+    public void load( ElevatorSystem system ) throws IOException {
+        MappedByteBuffer buffer;
+
+        try ( FileChannel channel = FileChannel.open( file.toPath(), StandardOpenOption.READ ) ) {
+            buffer = channel.map( FileChannel.MapMode.READ_ONLY, 0, channel.size() );
+        }
+
+        try {
+            if ( buffer.getInt() != MAGIC || buffer.getInt() != VERSION ) {
+                throw new IOException( file + " is not a version " + VERSION + " snapshot" );
+            }
+
+            int numElevators = buffer.getInt();
+            int numFloors = buffer.getInt();
+
+            millis = buffer.getLong();
+            cuts = new int[ numElevators ];
+
+            system.createElevators( numElevators, numFloors );
+
+            List< Elevator >    elevators = system.getElevatorList();
+            FloorRequestTable   floorRequests = system.getFloorRequests();
+            FloorRequest[]      stops = new FloorRequest[ 16 ];
+
+            for ( int i = 0; i < numElevators; ++i ) {
+                Elevator    elevator = elevators.get( i );
+                byte        flags = buffer.get();
+                int         floor = buffer.getInt();
+                long        traversed = buffer.getLong();
+                long        requests = buffer.getLong();
+
+                cuts[ i ] = buffer.getInt();
+
+                int         count = buffer.getInt();
+
+                if ( count > stops.length ) {
+                    stops = new FloorRequest[ Math.max( count, 2 * stops.length ) ];
+                }
+
+                for ( int j = 0; j < count; ++j ) {
+                    int stop = buffer.getInt();
+
+                    stops[ j ] = floorRequests.get( stop >> 1, ( stop & 1 ) != 0 ? Movement.DOWN : Movement.UP );
+                }
+
+                elevator.getQueue().moveFloor( floorRequests.get( floor, ( flags & SERVICING_DOWN ) != 0 
+                                                                         ? Movement.DOWN : Movement.UP ) );
+                elevator.getQueue().addFloors( stops, 0, count );
+                elevator.restoreCounters( traversed, requests );
+
+                if ( ( flags & MAINTENENCE ) != 0 ) {
+                    elevator.setInMaintenence( true );
+                }
+            }
+        } catch ( BufferUnderflowException ex ) {
+            throw new IOException( file + " is cut short" );
+        }
+    }
+
+    /** 
+     * Grows the buffer if it has less room than needed.
+     */
+    protected static ByteBuffer ensure( ByteBuffer buffer, int bytes ) {
+        if ( buffer.remaining() >= bytes ) {
+            return buffer;
+        }
+
+        ByteBuffer grown = ByteBuffer.allocate( Math.max( 2 * buffer.capacity(), buffer.position() + bytes ) );
+
+        buffer.flip();
+        grown.put( buffer );
+        return grown;
+    }
+}
@@ -0,0 +1,212 @@
+/*
+ * Copyright (C) 2017 glbrimhall.com
+ *
+ * This file is part of an Elevator Simulator program written in java.
+ *
+ * Elevator Simulator program is free software: you can redistribute it and/or 
+ * modify it under the terms of the GNU General Public License as published
+ * by the Free Software Foundation, version 3 of the License.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.glbrimhall.elevator;
+
+import java.io.BufferedReader;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * TraceReplay is the headless batch mode of the simulator. It streams a trace
+ * of timestamped commands through the same {@link ParseCommand} classes as
+ * the console, into an ElevatorSystem running on a {@link VirtualClock}, so 
+ * recorded traffic replays as fast as the cpu allows. The trace is read a line
+ * at a time, so it can be any size.
+ * <p>
+ * Each line of a trace is an optional timestamp in seconds, which may have a
+ * fraction, followed by a command, eg "12.5 f3u" or "13 e2f7". A line without
+ * a timestamp runs at the time of the line before it, and blank lines or 
+ * lines starting with # are skipped.
+ */
+public class TraceReplay {
+    protected ElevatorSystem    system = null;
+    protected VirtualClock      clock = null;
+    protected long              commands;
+    protected long              errors;
+
+    /** 
+     * @param system the ElevatorSystem to replay into, which is switched to
+     *               a VirtualClock if it is not initialized yet.
+     * @throws IllegalStateException if the system is already running on a
+     *                               {@link RealTimeClock}
+     */
+    public TraceReplay( ElevatorSystem system ) {
+        this.system = system;
+
+        if ( ! ( system.getClock() instanceof VirtualClock ) 
+             && ! system.setClock( new VirtualClock() ) ) {
+            throw new IllegalStateException( "A trace can only be replayed before the elevators are initialized,"
+                                             + " or into a system on a VirtualClock" );
+        }
+        this.clock = (VirtualClock) system.getClock();
+    }
+
+    /** 
+     * Returns the number of commands replayed so far.
+     */
+    public long getCommands() { return commands; }
+
+    /** 
+     * Returns the number of commands the parser did not accept.
+     */
+    public long getErrors() { return errors; }
+
+    /** 
+     * Replays a trace, advancing the clock to each command's timestamp 
+     * before parsing it. Nothing is printed per command.
+     * 
+     * @param trace the trace to read
+     * @throws IOException if the trace could not be read
+     */
+    public void replay( Reader trace ) throws IOException {
+        BufferedReader  lines = new BufferedReader( trace, 1 << 16 );
+        String          line;
+
+        while ( ( line = lines.readLine() ) != null ) {
+            int start = skipSpaces( line, 0 );
+
+            if ( start == line.length() || line.charAt( start ) == '#' ) {
+                continue;
+            }
+
+            if ( Character.isDigit( line.charAt( start ) ) ) {
+                int end = start;
+
+                while ( end < line.length() && ! Character.isWhitespace( line.charAt( end ) ) ) {
+                    ++end;
+                }
+                clock.advanceTo( parseMillis( line, start, end ) );
+                start = skipSpaces( line, end );
+            }
+
+            if ( start == line.length() ) {
+                continue;
+            }
+
+            ++commands;
+
+            if ( ! ParseCommand.OK.equals( parse( start == 0 ? line : line.substring( start ) ) ) ) {
+                ++errors;
+            }
+        }
+    }
+
+    /** 
+     * Parses a command on the system being replayed into. The clock and
+     * execution options are refused, as the replay drives the elevators
+     * on it's own VirtualClock.
+     * 
+     * @return the parser's reply
+     */
+    public String parse( String cmd ) {
+        if ( cmd.startsWith( "--clock=" ) || cmd.startsWith( "--execution=" ) ) {
+            return "Not allowed in a replay: " + cmd;
+        }
+        return system.getParser().Parse( cmd );
+    }
+
+    /** 
+     * Runs the clock until every elevator has emptied it's queue and parked.
+     */
+    public void finish() {
+        clock.advanceUntilIdle();
+    }
+
+    protected static int skipSpaces( String line, int index ) {
+        while ( index < line.length() && Character.isWhitespace( line.charAt( index ) ) ) {
+            ++index;
+        }
+        return index;
+    }
+
+    /** 
+     * Parses a timestamp of seconds, with an optional fraction, into 
+     * milliseconds without allocating.
+     */
+    protected static long parseMillis( String line, int start, int end ) {
+        long    seconds = 0;
+        long    millis = 0;
+        long    scale = 100;
+        int     i = start;
+
+        for ( ; i < end && Character.isDigit( line.charAt( i ) ); ++i ) {
+            seconds = 10 * seconds + ( line.charAt( i ) - '0' );
+        }
+
+        if ( i < end && line.charAt( i ) == '.' ) {
+            for ( ++i; i < end && Character.isDigit( line.charAt( i ) ); ++i ) {
+                millis += scale * ( line.charAt( i ) - '0' );
+                scale /= 10;
+            }
+        }
+        return 1000 * seconds + millis;
+    }
+
+    /**
+     * Replays a trace file without the console. Any further arguments are
+     * parsed as commands before the trace, eg --dispatch=eta n4f20, see
+     * {@link #parse(String)}
+     */
+    public static void main( String[] args ) throws IOException {
+        if ( args.length < 1 ) {
+            System.out.println( "usage: TraceReplay <trace file> [commands]" );
+            return;
+        }
+
+        ElevatorSystem  system = new ElevatorSystem();
+        TraceReplay     replay = new TraceReplay( system );
+        long            started = System.currentTimeMillis();
+
+        for ( int i = 1; i < args.length; ++i ) {
+            String reply = replay.parse( args[ i ] );
+
+            if ( ! ParseCommand.OK.equals( reply ) ) {
+                System.out.println( args[ i ] + ": " + reply );
+            }
+        }
+
+        Reader trace = new InputStreamReader( new FileInputStream( args[ 0 ] ), StandardCharsets.UTF_8 );
+
+        try {
+            replay.replay( trace );
+        }
+        finally {
+            trace.close();
+        }
+        replay.finish();
+        system.closeJournal();
+
+        long floors = 0;
+        long requests = 0;
+
+        for ( Elevator elevator: system.getElevatorList() ) {
+            floors += elevator.getTraversedFloors();
+            requests += elevator.getNumRequests();
+        }
+
+        System.out.format( "Replayed %d commands ( %d errors ) covering %.1f simulated seconds in %d ms.\n",
+                           replay.getCommands(), replay.getErrors(), 
+                           replay.clock.currentMillis() / 1000.0, 
+                           System.currentTimeMillis() - started );
+        System.out.format( "Elevators: %d, floors traversed: %d, requests: %d\n",
+                           system.getElevatorList().size(), floors, requests );
+    }
+}
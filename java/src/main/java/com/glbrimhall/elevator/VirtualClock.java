@@ -0,0 +1,149 @@
+/*
+ * Copyright (C) 2017 glbrimhall.com
+ *
+ * This file is part of an Elevator Simulator program written in java.
+ *
+ * Elevator Simulator program is free software: you can redistribute it and/or 
+ * modify it under the terms of the GNU General Public License as published
+ * by the Free Software Foundation, version 3 of the License.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.glbrimhall.elevator;
+
+import java.util.PriorityQueue;
+
+/**
+ * The VirtualClock is the discrete event {@link ISimulationClock}. Scheduled 
+ * events are kept in a priority queue ordered by their simulation time, and
+ * are run by whichever thread advances the clock, so a full day of traffic
+ * can be replayed in seconds on a single core.
+ */
+public class VirtualClock implements ISimulationClock {
+    protected PriorityQueue< Event >    events = null;
+    protected long                      now;
+    protected long                      sequence;
+
+    /**
+     * Event is a scheduled Runnable, ordered by time and then by the order
+     * it was scheduled in, so events at the same time run first in first out.
+     */
+    protected static class Event implements Comparable< Event > {
+        protected final long        time;
+        protected final long        sequence;
+        protected final Runnable    action;
+
+        public Event( long time, long sequence, Runnable action ) {
+            this.time = time;
+            this.sequence = sequence;
+            this.action = action;
+        }
+
+        @Override
+        public int compareTo( Event that ) {
+            if ( this.time != that.time ) {
+                return Long.compare( this.time, that.time );
+            }
+            return Long.compare( this.sequence, that.sequence );
+        }
+    }
+
+    public VirtualClock() {
+        this.events = new PriorityQueue< Event >();
+        this.now = 0;
+        this.sequence = 0;
+    }
+
+    @Override
+    public synchronized long currentMillis() { return now; }
+
+    /** 
+     * Advances the clock by the number of seconds, running the events
+     * scheduled within them on the calling thread.
+     */
+    @Override
+    public void sleepSeconds( String className, int seconds ) {
+        if ( seconds < 1 ) { seconds = 1; }
+        advance( 1000L * seconds );
+    }
+
+    @Override
+    public void sleepMillis( String className, long millis ) {
+        if ( millis > 0 ) { advance( millis ); }
+    }
+
+    @Override
+    public synchronized void schedule( long delayMillis, Runnable event ) {
+        if ( delayMillis < 0 ) { delayMillis = 0; }
+        events.add( new Event( now + delayMillis, sequence++, event ) );
+    }
+
+    @Override
+    public boolean isVirtual() { return true; }
+
+    /** 
+     * Returns the number of events waiting to run.
+     */
+    public synchronized int pendingEvents() { return events.size(); }
+
+    /** 
+     * Advances the clock by a number of milliseconds.
+     * 
+     * @param millis the milliseconds to advance the clock by
+     */
+    public void advance( long millis ) {
+        advanceTo( currentMillis() + millis );
+    }
+
+    /** 
+     * Runs events until none are left, ie every elevator has parked or
+     * gone offline, leaving the clock at the time of the last event.
+     */
+    public void advanceUntilIdle() {
+        while ( true ) {
+            Event next;
+
+            synchronized ( this ) {
+                next = events.poll();
+
+                if ( next == null ) {
+                    return;
+                }
+                now = next.time;
+            }
+            next.action.run();
+        }
+    }
+
+    /** 
+     * Runs all the events scheduled up to and including the target time,
+     * in time order, then leaves the clock at the target time.
+     * Note the events are run outside the clock's lock, so they may
+     * schedule further events.
+     * 
+     * @param targetMillis the simulation time to advance the clock to
+     */
+    public void advanceTo( long targetMillis ) {
+        while ( true ) {
+            Event next;
+
+            synchronized ( this ) {
+                next = events.peek();
+
+                if ( next == null || next.time > targetMillis ) {
+                    now = Math.max( now, targetMillis );
+                    return;
+                }
+                events.poll();
+                now = next.time;
+            }
+            next.action.run();
+        }
+    }
+}
@@ -0,0 +1,48 @@
+/*
+ * Copyright (C) 2017 glbrimhall.com
+ *
+ * This file is part of an Elevator Simulator program written in java.
+ *
+ * Elevator Simulator program is free software: you can redistribute it and/or 
+ * modify it under the terms of the GNU General Public License as published
+ * by the Free Software Foundation, version 3 of the License.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.glbrimhall.elevator;
+
+/**
+ * ZoneDispatch splits the floors into one sector of neighbouring floors per
+ * elevator, and sends a floor request to the elevator owning it's sector.
+ * A request in the sector of an elevator in maintenence goes to the nearest
+ * elevator instead.
+ */
+public class ZoneDispatch extends NearestCarDispatch {
+
+    @Override
+    public String getName() { return "zone"; }
+
+    @Override
+    public int selectElevator( ElevatorSystem system, FloorRequest request, int destination ) {
+        DispatchIndex   index = system.getDispatchIndex();
+        int             numElevators = index.size();
+        int             numFloors = system.getMaxFloors() + 1;
+
+        if ( numElevators == 0 || request.floor < 0 || request.floor >= numFloors ) {
+            return super.selectElevator( system, request, destination );
+        }
+
+        int zone = (int)( (long) request.floor * numElevators / numFloors );
+
+        if ( DispatchIndex.isInMaintenence( index.getSummary( zone ) ) ) {
+            return super.selectElevator( system, request, destination );
+        }
+        return zone;
+    }
+}